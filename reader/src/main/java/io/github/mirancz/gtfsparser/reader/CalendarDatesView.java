@@ -0,0 +1,45 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code calendar_dates} section, records of {@code [boolean true, short service, int date, byte exception type]}
+ * ended by {@code false}. Dates are packed as {@code year << 16 | month << 8 | day}.
+ */
+public class CalendarDatesView {
+
+    private static final int RECORD_SIZE = 8;
+
+    private final ByteBuffer section;
+    private final int size;
+
+    CalendarDatesView(ByteBuffer section) {
+        this.section = section;
+        this.size = (section.limit() - 1) / RECORD_SIZE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int serviceId(int index) {
+        return section.getShort(offset(index) + 1);
+    }
+
+    public int date(int index) {
+        return section.getInt(offset(index) + 3);
+    }
+
+    /**
+     * @return 1 if the service was added on the date, 2 if it was removed
+     */
+    public int exceptionType(int index) {
+        return section.get(offset(index) + 7);
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return index * RECORD_SIZE;
+    }
+
+}
@@ -0,0 +1,49 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code calendar} section, records of {@code [boolean true, short service, int start date, int end date, byte days]}
+ * ended by {@code false}. Dates are packed as {@code year << 16 | month << 8 | day}.
+ */
+public class CalendarView {
+
+    private static final int RECORD_SIZE = 12;
+
+    private final ByteBuffer section;
+    private final int size;
+
+    CalendarView(ByteBuffer section) {
+        this.section = section;
+        this.size = (section.limit() - 1) / RECORD_SIZE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int serviceId(int index) {
+        return section.getShort(offset(index) + 1);
+    }
+
+    public int startDate(int index) {
+        return section.getInt(offset(index) + 3);
+    }
+
+    public int endDate(int index) {
+        return section.getInt(offset(index) + 7);
+    }
+
+    /**
+     * @return bit 0 set if the service runs on mondays up to bit 6 for sundays
+     */
+    public int days(int index) {
+        return section.get(offset(index) + 11);
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return index * RECORD_SIZE;
+    }
+
+}
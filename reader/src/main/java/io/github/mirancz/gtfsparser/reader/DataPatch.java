@@ -0,0 +1,120 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import org.tukaani.xz.XZInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Applies the published patches, which rebuild a newer version of the data container from an older one.
+ * <p>
+ * A patch starts with the length and SHA-256 of both versions followed by operations that rebuild the new version:
+ * <pre>
+ * 1, int offset, int length   copy bytes of the old version
+ * 2, int length, bytes        insert new bytes
+ * 0                           end
+ * </pre>
+ * The patches and the versions they lead between are listed in {@code storage/patches}.
+ */
+public final class DataPatch {
+
+    public static final int MAGIC = 0x47504154; // "GPAT"
+    public static final int VERSION = 1;
+
+    public static final int OP_END = 0;
+    public static final int OP_COPY = 1;
+    public static final int OP_INSERT = 2;
+
+    private static final int HASH_LENGTH = 32;
+
+    private DataPatch() {
+    }
+
+    /**
+     * Applies a patch as it is published, compressed with XZ.
+     */
+    public static byte[] apply(byte[] previous, InputStream compressedPatch) throws IOException {
+        try (InputStream is = new XZInputStream(compressedPatch)) {
+            return apply(previous, is.readAllBytes());
+        }
+    }
+
+    /**
+     * @throws IOException if the patch is malformed or it does not belong to the given version
+     */
+    public static byte[] apply(byte[] previous, byte[] patch) throws IOException {
+        DataInputStream is = new DataInputStream(new ByteArrayInputStream(patch));
+
+        if (is.readInt() != MAGIC || is.readByte() != VERSION) {
+            throw new IOException("Not a data patch");
+        }
+
+        int previousLength = is.readInt();
+        byte[] previousHash = is.readNBytes(HASH_LENGTH);
+        if (previousLength != previous.length || !Arrays.equals(previousHash, sha256(previous))) {
+            throw new IOException("Patch does not apply to this version");
+        }
+
+        int currentLength = is.readInt();
+        byte[] currentHash = is.readNBytes(HASH_LENGTH);
+        if (currentLength < 0) {
+            throw new IOException("Invalid patched length " + currentLength);
+        }
+
+        byte[] result = new byte[currentLength];
+        int pos = 0;
+
+        int op;
+        while ((op = is.readByte()) != OP_END) {
+            switch (op) {
+                case OP_COPY -> {
+                    int offset = is.readInt();
+                    int length = is.readInt();
+                    if (offset < 0 || length < 0 || offset > previous.length - length) {
+                        throw new IOException("Copy of " + length + " bytes at " + offset + " is outside of the previous version");
+                    }
+                    checkFits(length, pos, currentLength);
+
+                    System.arraycopy(previous, offset, result, pos, length);
+                    pos += length;
+                }
+                case OP_INSERT -> {
+                    int length = is.readInt();
+                    if (length < 0) {
+                        throw new IOException("Invalid insert length " + length);
+                    }
+                    checkFits(length, pos, currentLength);
+
+                    is.readFully(result, pos, length);
+                    pos += length;
+                }
+                default -> throw new IOException("Unknown patch operation " + op);
+            }
+        }
+
+        if (pos != currentLength || !Arrays.equals(currentHash, sha256(result))) {
+            throw new IOException("Patched data does not match the checksum");
+        }
+        return result;
+    }
+
+    private static void checkFits(int length, int pos, int currentLength) throws IOException {
+        if (length > currentLength - pos) {
+            throw new IOException("Patch writes past the patched length " + currentLength);
+        }
+    }
+
+    public static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
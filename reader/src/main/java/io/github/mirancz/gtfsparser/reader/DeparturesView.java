@@ -0,0 +1,189 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * The {@code departures} section, a departure board for every stop and post. The boards are sorted by stop and post
+ * and the entries of a board by departure, so both are found by binary search.
+ * <p>
+ * Boards are {@code [short stop id, short post id, int first entry, int entry count]}, entries
+ * {@code [short departure, short service id, int route_stops row]}.
+ * <p>
+ * Departures are minutes since the start of the service day, as in GTFS, so a trip of Monday leaving at 24:30 is
+ * {@code 1470} on Monday's board and never at 00:30 on Tuesday. {@link #nextDeparture} only sees a single service day,
+ * {@link #nextDepartures} also takes the previous one into account.
+ */
+public class DeparturesView {
+
+    private static final int HEADER_SIZE = 4;
+    private static final int BOARD_SIZE = 12;
+    private static final int ENTRY_SIZE = 8;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final ByteBuffer section;
+    private final int boardCount;
+    private final int entriesStart;
+
+    DeparturesView(ByteBuffer section) {
+        this.section = section;
+        this.boardCount = section.getInt(0);
+        this.entriesStart = HEADER_SIZE + boardCount * BOARD_SIZE;
+    }
+
+    public int boardCount() {
+        return boardCount;
+    }
+
+    /**
+     * @return index of the board of the stop and post, -1 if nothing departs from there
+     */
+    public int board(int stopId, int postId) {
+        int key = stopId << 16 | postId;
+
+        int low = 0;
+        int high = boardCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midKey = boardKey(mid);
+
+            if (midKey < key) low = mid + 1;
+            else if (midKey > key) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the first board of the stop, the boards of all its posts follow it up to {@link #boardsEnd}
+     */
+    public int boardsStart(int stopId) {
+        return lowerBoard(stopId << 16);
+    }
+
+    public int boardsEnd(int stopId) {
+        return lowerBoard((stopId + 1) << 16);
+    }
+
+    private int lowerBoard(int key) {
+        int low = 0;
+        int high = boardCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (boardKey(mid) < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private int boardKey(int board) {
+        return stopId(board) << 16 | postId(board);
+    }
+
+    public int stopId(int board) {
+        return section.getShort(boardOffset(board));
+    }
+
+    public int postId(int board) {
+        return section.getShort(boardOffset(board) + 2);
+    }
+
+    public int firstEntry(int board) {
+        return section.getInt(boardOffset(board) + 4);
+    }
+
+    public int entryCount(int board) {
+        return section.getInt(boardOffset(board) + 8);
+    }
+
+    /**
+     * @param minutes since the start of the service day
+     * @return the first entry of the board departing at or after the time, {@code firstEntry + entryCount} if none,
+     * regardless of the service
+     */
+    public int nextDeparture(int board, int minutes) {
+        int low = firstEntry(board);
+        int high = low + entryCount(board);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departure(mid) < minutes) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Finds the departures of the board on the date at or after the time, in order of their time. Along with the trips
+     * of the date, they include the trips of the previous service day departing at 24:00 or later.
+     *
+     * @param minutes since midnight of the date
+     * @param entries filled with the entries, up to its length
+     * @param times   filled with the departures of the entries in minutes since midnight of the date
+     * @return number of departures filled in
+     */
+    public int nextDepartures(int board, ServiceDaysView days, LocalDate date, int minutes, int[] entries, int[] times) {
+        int day = days.dayIndex(date);
+        int previousDay = days.dayIndex(date.minusDays(1));
+        int end = firstEntry(board) + entryCount(board);
+
+        int current = nextDeparture(board, minutes);
+        int previous = nextDeparture(board, minutes + MINUTES_PER_DAY);
+
+        int count = 0;
+        while (count < entries.length) {
+            current = nextRunning(current, end, days, day);
+            previous = nextRunning(previous, end, days, previousDay);
+            if (current == end && previous == end) break;
+
+            if (previous != end && (current == end || departure(previous) - MINUTES_PER_DAY <= departure(current))) {
+                entries[count] = previous;
+                times[count++] = departure(previous++) - MINUTES_PER_DAY;
+            } else {
+                entries[count] = current;
+                times[count++] = departure(current++);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the first entry from the given one whose service runs on the day, {@code end} if none
+     */
+    private int nextRunning(int entry, int end, ServiceDaysView days, int day) {
+        if (day == -1) return end;
+
+        for (; entry < end; entry++) {
+            int serviceIndex = days.serviceIndex(serviceId(entry));
+            if (serviceIndex != -1 && days.isActive(serviceIndex, day)) break;
+        }
+        return entry;
+    }
+
+    /**
+     * @return minutes since the start of the service day
+     */
+    public int departure(int entry) {
+        return section.getShort(entryOffset(entry));
+    }
+
+    public int serviceId(int entry) {
+        return section.getShort(entryOffset(entry) + 2);
+    }
+
+    /**
+     * @return the route_stops row of the departure, which leads to the trip
+     */
+    public int row(int entry) {
+        return section.getInt(entryOffset(entry) + 4);
+    }
+
+    private int boardOffset(int board) {
+        if (board < 0 || board >= boardCount) throw new IndexOutOfBoundsException(board);
+        return HEADER_SIZE + board * BOARD_SIZE;
+    }
+
+    private int entryOffset(int entry) {
+        return entriesStart + entry * ENTRY_SIZE;
+    }
+
+}
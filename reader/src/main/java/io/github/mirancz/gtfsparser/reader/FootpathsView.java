@@ -0,0 +1,86 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code footpaths} section, the walks between the posts near each other as an adjacency list:
+ * <pre>
+ * int post count
+ * per post, sorted by stop and post id: short stop id, short post id
+ * post count + 1 ints, the start of the footpaths of every post
+ * per footpath, sorted by post: int index of the post walked to, short walking seconds
+ * </pre>
+ */
+public class FootpathsView {
+
+    private static final int FOOTPATH_SIZE = 6;
+
+    private final ByteBuffer section;
+    private final int postCount;
+    private final int startsStart;
+    private final int footpathsStart;
+
+    FootpathsView(ByteBuffer section) {
+        this.section = section;
+        this.postCount = section.getInt(0);
+        this.startsStart = 4 + 4 * postCount;
+        this.footpathsStart = startsStart + 4 * (postCount + 1);
+    }
+
+    public int postCount() {
+        return postCount;
+    }
+
+    public int stopId(int post) {
+        return section.getShort(4 + 4 * post);
+    }
+
+    public int postId(int post) {
+        return section.getShort(4 + 4 * post + 2);
+    }
+
+    /**
+     * @return index of the post, -1 if there is no such post
+     */
+    public int postIndex(int stopId, int postId) {
+        int key = stopId << 16 | postId;
+
+        int low = 0;
+        int high = postCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midKey = stopId(mid) << 16 | postId(mid);
+
+            if (midKey < key) low = mid + 1;
+            else if (midKey > key) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the first footpath from the post
+     */
+    public int firstFootpath(int post) {
+        return section.getInt(startsStart + 4 * post);
+    }
+
+    /**
+     * @return index right after the last footpath from the post
+     */
+    public int endFootpath(int post) {
+        return section.getInt(startsStart + 4 * (post + 1));
+    }
+
+    /**
+     * @return index of the post the footpath leads to
+     */
+    public int target(int footpath) {
+        return section.getInt(footpathsStart + footpath * FOOTPATH_SIZE);
+    }
+
+    public int walkingSeconds(int footpath) {
+        return section.getShort(footpathsStart + footpath * FOOTPATH_SIZE + 4);
+    }
+
+}
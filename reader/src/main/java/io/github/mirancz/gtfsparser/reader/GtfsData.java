@@ -0,0 +1,199 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import org.tukaani.xz.XZInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read only access to the data container.
+ * <p>
+ * The container is decompressed once to a cache file which is memory mapped, so opening it only walks the section
+ * headers and the views read the records straight from the mapping. The views are flyweights addressed by index,
+ * none of them creates an object per record.
+ */
+public class GtfsData implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final Map<String, ByteBuffer> sections;
+
+    private GtfsData(FileChannel channel, Map<String, ByteBuffer> sections) {
+        this.channel = channel;
+        this.sections = sections;
+    }
+
+    /**
+     * @param data  the compressed {@code data} file
+     * @param cache where the uncompressed container is kept, it is refreshed when it is older than the data
+     */
+    public static GtfsData open(Path data, Path cache) throws IOException {
+        if (!Files.exists(cache) || Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(data)) < 0) {
+            decompress(data, cache);
+        }
+        return map(cache);
+    }
+
+    /**
+     * @param container an already uncompressed container
+     */
+    public static GtfsData map(Path container) throws IOException {
+        FileChannel channel = FileChannel.open(container, StandardOpenOption.READ);
+        try {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GtfsData(channel, index(buffer));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param container an already uncompressed container held in memory
+     */
+    public static GtfsData wrap(ByteBuffer container) {
+        return new GtfsData(null, index(container.duplicate()));
+    }
+
+    private static void decompress(Path data, Path cache) throws IOException {
+        // written next to the cache and moved over it, so an interrupted run never leaves a truncated cache behind
+        Path temp = cache.resolveSibling(cache.getFileName() + ".tmp");
+
+        try (InputStream is = new XZInputStream(new BufferedInputStream(Files.newInputStream(data)));
+             OutputStream os = Files.newOutputStream(temp)) {
+            is.transferTo(os);
+        }
+        Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Map<String, ByteBuffer> index(ByteBuffer buffer) {
+        Map<String, ByteBuffer> sections = new HashMap<>();
+
+        while (buffer.get() != 0) {
+            byte[] name = new byte[buffer.getInt()];
+            buffer.get(name);
+
+            int length = buffer.getInt();
+            sections.put(new String(name, StandardCharsets.UTF_8), buffer.slice(buffer.position(), length));
+            buffer.position(buffer.position() + length);
+        }
+
+        return sections;
+    }
+
+    public Set<String> getSectionNames() {
+        return Collections.unmodifiableSet(sections.keySet());
+    }
+
+    public boolean hasSection(String name) {
+        return sections.containsKey(name);
+    }
+
+    /**
+     * @return the data of the section, positioned at its start
+     */
+    public ByteBuffer getSection(String name) {
+        ByteBuffer section = sections.get(name);
+        if (section == null) throw new IllegalArgumentException("Missing section: " + name);
+
+        return section.duplicate();
+    }
+
+    public Strings strings() {
+        return Strings.of(getSection("strings"));
+    }
+
+    public StopsView stops() {
+        return new StopsView(getSection("stops"));
+    }
+
+    public FootpathsView footpaths() {
+        return new FootpathsView(getSection("footpaths"));
+    }
+
+    public StopGridView stopGrid() {
+        return new StopGridView(getSection("stop_grid"));
+    }
+
+    public TripsView trips() {
+        return new TripsView(getSection("trips"));
+    }
+
+    /**
+     * Walks the whole section once to index the trips, keep the returned view.
+     */
+    public RouteStopsView routeStops() {
+        return new RouteStopsView(getSection("route_stops"));
+    }
+
+    /**
+     * Walks the whole section once to index the patterns, keep the returned view.
+     */
+    public StopToRouteView stopToRoute() {
+        return new StopToRouteView(getSection("stop_to_route"));
+    }
+
+    public DeparturesView departures() {
+        return new DeparturesView(getSection("departures"));
+    }
+
+    public CalendarView calendar() {
+        return new CalendarView(getSection("calendar"));
+    }
+
+    public CalendarDatesView calendarDates() {
+        return new CalendarDatesView(getSection("calendar_dates"));
+    }
+
+    public ServiceDaysView serviceDays() {
+        return new ServiceDaysView(getSection("service_days"));
+    }
+
+    /**
+     * @return a matrix of the travel_times file, named by its reference time
+     */
+    public TravelTimesView travelTimes(String name) {
+        return new TravelTimesView(getSection(name));
+    }
+
+    /**
+     * @return number of stop ids, the stop ids of the sections go from 0 to it
+     */
+    public int stopIdCount() {
+        return getSection("stop_mapping").getInt(0);
+    }
+
+    public TransfersView transfers() {
+        ByteBuffer section = getSection("transfers");
+        return new TransfersView(section, 0, false);
+    }
+
+    /**
+     * Transfers between two specific trips, they come after the ones of {@link #transfers()}.
+     */
+    public TransfersView tripTransfers() {
+        ByteBuffer section = getSection("transfers");
+        return new TransfersView(section, TransfersView.end(section, 0, false), true);
+    }
+
+    /**
+     * Closes the file, the mapping itself is released once the buffers are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+}
@@ -0,0 +1,80 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decoded {@code route_stops} section, every stop of every trip as a row. The rows of a trip are consecutive,
+ * their order within the trip is the stop sequence.
+ */
+public class RouteStops {
+
+    private final int[] trips;
+    private final short[] stops;
+    private final short[] posts;
+    private final short[] arrivals;
+    private final short[] departures;
+    private final int size;
+
+    private RouteStops(int size) {
+        trips = new int[size];
+        stops = new short[size];
+        posts = new short[size];
+        arrivals = new short[size];
+        departures = new short[size];
+        this.size = size;
+    }
+
+    /**
+     * Decodes every row into arrays, {@link RouteStopsView} reads them in place instead.
+     */
+    public static RouteStops decode(ByteBuffer section) {
+        RouteStopsView view = new RouteStopsView(section);
+        RouteStops result = new RouteStops(view.size());
+
+        RouteStopsView.Cursor cursor = view.cursor();
+        for (int i = 0; i < view.tripCount(); i++) {
+            cursor.moveToTrip(i);
+            while (cursor.next()) {
+                int row = cursor.row();
+                result.trips[row] = cursor.tripId();
+                result.stops[row] = (short) cursor.stopId();
+                result.posts[row] = (short) cursor.postId();
+                result.arrivals[row] = (short) cursor.arrival();
+                result.departures[row] = (short) cursor.departure();
+            }
+        }
+
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int tripId(int row) {
+        return trips[row];
+    }
+
+    public short stopId(int row) {
+        return stops[row];
+    }
+
+    public short postId(int row) {
+        return posts[row];
+    }
+
+    /**
+     * @return minutes since the start of the service day
+     */
+    public int arrival(int row) {
+        return arrivals[row];
+    }
+
+    /**
+     * @return minutes since the start of the service day
+     */
+    public int departure(int row) {
+        return departures[row];
+    }
+
+}
@@ -0,0 +1,180 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@code route_stops} section, every stop of every trip as a row. The rows are varint coded, so the view keeps
+ * the offset of every trip and a {@link Cursor} decodes the rows of one trip at a time.
+ */
+public class RouteStopsView {
+
+    private final ByteBuffer section;
+
+    private final int[] offsets;
+    private final int[] tripIds;
+    private final int[] firstRows;
+    private final int size;
+
+    RouteStopsView(ByteBuffer section) {
+        this.section = section;
+
+        SectionReader reader = new SectionReader(section.duplicate());
+        int tripCount = reader.readVarInt();
+
+        offsets = new int[tripCount];
+        tripIds = new int[tripCount];
+        firstRows = new int[tripCount + 1];
+
+        int tripId = 0;
+        for (int i = 0; i < tripCount; i++) {
+            tripIds[i] = tripId += reader.readSignedVarInt();
+            int length = reader.readVarInt();
+
+            offsets[i] = reader.position();
+            firstRows[i + 1] = firstRows[i] + length;
+
+            for (int j = 0; j < length * 4; j++) {
+                reader.readVarInt();
+            }
+        }
+
+        size = firstRows[tripCount];
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of trips, in the order of the rows
+     */
+    public int tripCount() {
+        return tripIds.length;
+    }
+
+    public int tripId(int tripIndex) {
+        return tripIds[tripIndex];
+    }
+
+    public int firstRow(int tripIndex) {
+        return firstRows[tripIndex];
+    }
+
+    public int length(int tripIndex) {
+        return firstRows[tripIndex + 1] - firstRows[tripIndex];
+    }
+
+    /**
+     * @return index of the trip the row belongs to
+     */
+    public int tripIndexOf(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException(row);
+
+        int index = Arrays.binarySearch(firstRows, 0, tripIds.length, row);
+        if (index >= 0) {
+            // trips are never empty, so the first match is the trip starting at the row
+            return index;
+        }
+        return -index - 2;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Reusable position within the rows, moved by {@link #next()} after {@link #moveToTrip} or {@link #moveToRow}.
+     */
+    public final class Cursor {
+
+        private final ByteBuffer buffer = section.duplicate();
+        private final SectionReader reader = new SectionReader(buffer);
+
+        private int tripIndex = -1;
+        private int row;
+        private int end;
+        private int time;
+
+        private int stopId;
+        private int postId;
+        private int arrival;
+        private int departure;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves before the first row of the trip.
+         */
+        public void moveToTrip(int tripIndex) {
+            this.tripIndex = tripIndex;
+            buffer.position(offsets[tripIndex]);
+            row = firstRows[tripIndex] - 1;
+            end = firstRows[tripIndex + 1];
+            time = 0;
+        }
+
+        /**
+         * Moves to the row, decoding the rows of its trip before it.
+         */
+        public void moveToRow(int row) {
+            moveToTrip(tripIndexOf(row));
+            while (this.row < row) {
+                next();
+            }
+        }
+
+        /**
+         * @return false once past the last row of the trip
+         */
+        public boolean next() {
+            if (row + 1 >= end) return false;
+
+            stopId = reader.readVarInt();
+            postId = reader.readVarInt();
+            arrival = time + reader.readSignedVarInt();
+            departure = time = arrival + reader.readSignedVarInt();
+            row++;
+            return true;
+        }
+
+        public int tripIndex() {
+            return tripIndex;
+        }
+
+        public int tripId() {
+            return tripIds[tripIndex];
+        }
+
+        public int row() {
+            return row;
+        }
+
+        public int stopId() {
+            return stopId;
+        }
+
+        public int postId() {
+            return postId;
+        }
+
+        /**
+         * @return minutes since the start of the service day
+         */
+        public int arrival() {
+            return arrival;
+        }
+
+        /**
+         * @return minutes since the start of the service day
+         */
+        public int departure() {
+            return departure;
+        }
+    }
+
+}
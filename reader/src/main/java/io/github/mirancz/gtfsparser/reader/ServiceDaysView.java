@@ -0,0 +1,108 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The {@code service_days} section, one bitset of the days every service runs on (with the calendar_dates exceptions
+ * already applied) and the services running on every day. Days are indexed from {@link #firstDate()}.
+ */
+public class ServiceDaysView {
+
+    private final ByteBuffer section;
+    private final LocalDate firstDate;
+    private final int dayCount;
+    private final int serviceCount;
+    private final int serviceSize;
+    private final int servicesStart;
+    private final int dayOffsetsStart;
+    private final int dayServicesStart;
+
+    ServiceDaysView(ByteBuffer section) {
+        this.section = section;
+
+        int first = section.getInt(0);
+        this.dayCount = section.getInt(4);
+        this.firstDate = dayCount == 0 ? null : LocalDate.of(first >>> 16, (first >>> 8) & 0xFF, first & 0xFF);
+        this.serviceCount = section.getInt(8);
+        this.serviceSize = 2 + 8 * ((dayCount + 63) / 64);
+        this.servicesStart = 12;
+        this.dayOffsetsStart = servicesStart + serviceCount * serviceSize;
+        this.dayServicesStart = dayOffsetsStart + 4 * (dayCount + 1);
+    }
+
+    /**
+     * @return null if there are no days
+     */
+    public LocalDate firstDate() {
+        return firstDate;
+    }
+
+    public int dayCount() {
+        return dayCount;
+    }
+
+    /**
+     * @return -1 if the date is out of the range of the calendar
+     */
+    public int dayIndex(LocalDate date) {
+        if (firstDate == null) return -1;
+
+        long day = ChronoUnit.DAYS.between(firstDate, date);
+        return day < 0 || day >= dayCount ? -1 : (int) day;
+    }
+
+    public int serviceCount() {
+        return serviceCount;
+    }
+
+    public int serviceId(int serviceIndex) {
+        return section.getShort(servicesStart + serviceIndex * serviceSize);
+    }
+
+    /**
+     * @return index of the service, -1 if the calendar does not know it
+     */
+    public int serviceIndex(int serviceId) {
+        int low = 0;
+        int high = serviceCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = serviceId(mid);
+
+            if (midId < serviceId) low = mid + 1;
+            else if (midId > serviceId) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    public boolean isActive(int serviceIndex, int day) {
+        if (day < 0 || day >= dayCount) return false;
+
+        long word = section.getLong(servicesStart + serviceIndex * serviceSize + 2 + 8 * (day >>> 6));
+        return (word & 1L << day) != 0;
+    }
+
+    public boolean isActive(int serviceId, LocalDate date) {
+        int serviceIndex = serviceIndex(serviceId);
+        return serviceIndex != -1 && isActive(serviceIndex, dayIndex(date));
+    }
+
+    /**
+     * @return number of services running on the day
+     */
+    public int activeServiceCount(int day) {
+        return section.getInt(dayOffsetsStart + 4 * (day + 1)) - section.getInt(dayOffsetsStart + 4 * day);
+    }
+
+    /**
+     * @return id of the i-th service running on the day, ordered by id
+     */
+    public int activeServiceId(int day, int i) {
+        int offset = section.getInt(dayOffsetsStart + 4 * day) + i;
+        return section.getShort(dayServicesStart + 2 * offset);
+    }
+
+}
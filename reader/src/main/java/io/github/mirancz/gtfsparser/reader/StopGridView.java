@@ -0,0 +1,188 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntConsumer;
+
+/**
+ * The {@code stop_grid} section, a uniform grid over the stops:
+ * <pre>
+ * int stop count, int min lat, int min lon, int cell lat, int cell lon (microdegrees), int columns, int rows
+ * columns * rows + 1 ints, the start of the stops of every cell, row by row from the south west corner
+ * per stop ordered by cell: int stop id, int lat, int lon (microdegrees)
+ * </pre>
+ * A query only looks at the cells around the position. Distances are meters in the equirectangular approximation,
+ * good enough within a city.
+ */
+public class StopGridView {
+
+    private static final double MICRODEGREES = 1e6;
+    private static final double METERS_PER_DEGREE = 6_371_000 * Math.PI / 180;
+
+    private static final int HEADER_SIZE = 28;
+    private static final int ENTRY_SIZE = 12;
+
+    private final ByteBuffer section;
+
+    private final int size;
+    private final int minLat;
+    private final int minLon;
+    private final int cellLat;
+    private final int cellLon;
+    private final int columns;
+    private final int rows;
+    private final int entriesStart;
+
+    StopGridView(ByteBuffer section) {
+        this.section = section;
+
+        this.size = section.getInt(0);
+        this.minLat = section.getInt(4);
+        this.minLon = section.getInt(8);
+        this.cellLat = section.getInt(12);
+        this.cellLon = section.getInt(16);
+        this.columns = section.getInt(20);
+        this.rows = section.getInt(24);
+        this.entriesStart = HEADER_SIZE + 4 * (columns * rows + 1);
+    }
+
+    /**
+     * @return number of stops, the index of a stop is its position in the grid
+     */
+    public int size() {
+        return size;
+    }
+
+    public int stopId(int index) {
+        return section.getInt(entriesStart + index * ENTRY_SIZE);
+    }
+
+    public double lat(int index) {
+        return section.getInt(entriesStart + index * ENTRY_SIZE + 4) / MICRODEGREES;
+    }
+
+    public double lon(int index) {
+        return section.getInt(entriesStart + index * ENTRY_SIZE + 8) / MICRODEGREES;
+    }
+
+    /**
+     * @return meters from the position to the stop
+     */
+    public double distance(double lat, double lon, int index) {
+        return distance(lat, lon, Math.cos(Math.toRadians(lat)), index);
+    }
+
+    private double distance(double lat, double lon, double lonScale, int index) {
+        int offset = entriesStart + index * ENTRY_SIZE;
+        double dLat = section.getInt(offset + 4) / MICRODEGREES - lat;
+        double dLon = (section.getInt(offset + 8) / MICRODEGREES - lon) * lonScale;
+        return Math.sqrt(dLat * dLat + dLon * dLon) * METERS_PER_DEGREE;
+    }
+
+    private int cellStart(int row, int column) {
+        return section.getInt(HEADER_SIZE + 4 * (row * columns + column));
+    }
+
+    /**
+     * Passes the index of every stop at most the distance away from the position, in no particular order.
+     */
+    public void forEachWithin(double lat, double lon, double meters, IntConsumer indices) {
+        if (size == 0) return;
+
+        double lonScale = Math.cos(Math.toRadians(lat));
+        int fixedLat = toFixed(lat);
+        int fixedLon = toFixed(lon);
+        // one more for the rounding of the position
+        int latRadius = (int) Math.ceil(meters / METERS_PER_DEGREE * MICRODEGREES) + 1;
+        int lonRadius = (int) Math.ceil(meters / (METERS_PER_DEGREE * lonScale) * MICRODEGREES) + 1;
+
+        int firstRow = Math.max(0, Math.floorDiv(fixedLat - latRadius - minLat, cellLat));
+        int lastRow = Math.min(rows - 1, Math.floorDiv(fixedLat + latRadius - minLat, cellLat));
+        int firstColumn = Math.max(0, Math.floorDiv(fixedLon - lonRadius - minLon, cellLon));
+        int lastColumn = Math.min(columns - 1, Math.floorDiv(fixedLon + lonRadius - minLon, cellLon));
+        if (firstColumn > lastColumn) return;
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            // the cells of a row are next to each other
+            int end = cellStart(row, lastColumn + 1);
+            for (int i = cellStart(row, firstColumn); i < end; i++) {
+                if (distance(lat, lon, lonScale, i) <= meters) indices.accept(i);
+            }
+        }
+    }
+
+    /**
+     * Finds the stops nearest to the position, looking at the cells in rings around it until no cell left can hold a
+     * nearer stop.
+     *
+     * @param indices filled with the indices of the nearest stops, nearest first, its length is the number of stops
+     *                to find
+     * @param meters  filled with their distances, as long as the indices
+     * @return number of stops found, less than asked for only if the grid has fewer stops
+     */
+    public int nearest(double lat, double lon, int[] indices, double[] meters) {
+        int k = Math.min(indices.length, size);
+        if (k == 0) return 0;
+
+        double lonScale = Math.cos(Math.toRadians(lat));
+        double cellHeight = cellLat / MICRODEGREES * METERS_PER_DEGREE;
+        double cellWidth = cellLon / MICRODEGREES * METERS_PER_DEGREE * lonScale;
+
+        // position in cells, may be outside of the grid
+        double y = (lat * MICRODEGREES - minLat) / cellLat;
+        double x = (lon * MICRODEGREES - minLon) / cellLon;
+        int row = (int) Math.floor(y);
+        int column = (int) Math.floor(x);
+
+        // the first ring reaching into the grid and the one covering all of it
+        int minRing = Math.max(Math.max(Math.max(-row, row - (rows - 1)), Math.max(-column, column - (columns - 1))), 0);
+        int maxRing = Math.max(Math.max(row, rows - 1 - row), Math.max(column, columns - 1 - column));
+
+        int found = 0;
+        for (int ring = minRing; ring <= maxRing; ring++) {
+            for (int r = Math.max(0, row - ring); r <= Math.min(rows - 1, row + ring); r++) {
+                boolean edge = r == row - ring || r == row + ring;
+                for (int c = column - ring; c <= column + ring; c += edge ? 1 : 2 * ring) {
+                    if (c < 0 || c >= columns) continue;
+
+                    for (int i = cellStart(r, c); i < cellStart(r, c + 1); i++) {
+                        found = insert(indices, meters, found, k, i, distance(lat, lon, lonScale, i));
+                    }
+                }
+            }
+
+            // the stops of the next ring are at least as far as the border of the cells looked at so far
+            if (found == k) {
+                double border = Math.min(
+                        Math.min(x - (column - ring), column + ring + 1 - x) * cellWidth,
+                        Math.min(y - (row - ring), row + ring + 1 - y) * cellHeight
+                );
+                if (border >= meters[k - 1]) break;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Inserts the stop among the nearest ones found so far, sorted by distance.
+     */
+    private static int insert(int[] indices, double[] meters, int found, int k, int index, double distance) {
+        if (found == k && distance >= meters[k - 1]) return found;
+
+        int i = found == k ? k - 1 : found;
+        while (i > 0 && meters[i - 1] > distance) {
+            indices[i] = indices[i - 1];
+            meters[i] = meters[i - 1];
+            i--;
+        }
+        indices[i] = index;
+        meters[i] = distance;
+
+        return found == k ? k : found + 1;
+    }
+
+    private static int toFixed(double degrees) {
+        return (int) Math.round(degrees * MICRODEGREES);
+    }
+
+}
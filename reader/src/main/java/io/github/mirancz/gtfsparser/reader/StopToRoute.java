@@ -0,0 +1,129 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoded {@code stop_to_route} section, the trip patterns and the patterns passing every stop.
+ * Frequency runs are expanded, so every trip has its own start time.
+ */
+public class StopToRoute {
+
+    private final List<Pattern> patterns;
+    private final List<Visits> stops;
+
+    private StopToRoute(List<Pattern> patterns, List<Visits> stops) {
+        this.patterns = patterns;
+        this.stops = stops;
+    }
+
+    /**
+     * Decodes every pattern into objects, {@link StopToRouteView} reads them in place instead.
+     */
+    public static StopToRoute decode(ByteBuffer section) {
+        StopToRouteView view = new StopToRouteView(section);
+
+        List<Pattern> patterns = new ArrayList<>(view.patternCount());
+        StopToRouteView.Cursor cursor = view.cursor();
+        for (int p = 0; p < view.patternCount(); p++) {
+            cursor.moveTo(p);
+            patterns.add(toPattern(cursor));
+        }
+
+        List<Visits> stops = new ArrayList<>(view.stopCount());
+        for (int stopId = 0; stopId < view.stopCount(); stopId++) {
+            int[] patternIndices = new int[view.visitCount(stopId)];
+            int[] stopIndices = new int[patternIndices.length];
+            for (int i = 0; i < patternIndices.length; i++) {
+                patternIndices[i] = view.visitPattern(stopId, i);
+                stopIndices[i] = view.visitStopIndex(stopId, i);
+            }
+            stops.add(new Visits(patternIndices, stopIndices));
+        }
+
+        return new StopToRoute(patterns, stops);
+    }
+
+    private static Pattern toPattern(StopToRouteView.Cursor cursor) {
+        int length = cursor.stopCount();
+        short[] stopIds = new short[length];
+        short[] postIds = new short[length];
+        int[] profile = new int[length];
+        for (int i = 0; i < length; i++) {
+            stopIds[i] = (short) cursor.stopId(i);
+            postIds[i] = (short) cursor.postId(i);
+            profile[i] = cursor.profile(i);
+        }
+
+        int tripCount = cursor.tripCount();
+        int[] rows = new int[tripCount];
+        int[] starts = new int[tripCount];
+        int[][] exceptions = new int[tripCount][];
+        for (int j = 0; j < tripCount; j++) {
+            rows[j] = cursor.row(j, 0);
+            starts[j] = cursor.departure(j, 0);
+
+            if (cursor.isException(j)) {
+                int[] offsets = new int[length];
+                for (int i = 0; i < length; i++) {
+                    offsets[i] = cursor.departure(j, i) - starts[j];
+                }
+                exceptions[j] = offsets;
+            }
+        }
+
+        return new Pattern((short) cursor.serviceId(), stopIds, postIds, profile, rows, starts, exceptions);
+    }
+
+    public int patternCount() {
+        return patterns.size();
+    }
+
+    public Pattern pattern(int index) {
+        return patterns.get(index);
+    }
+
+    public int stopCount() {
+        return stops.size();
+    }
+
+    public Visits get(int stopId) {
+        return stops.get(stopId);
+    }
+
+    /**
+     * Trips with the same stops on the same service, sorted by their departure.
+     *
+     * @param profile    minutes every stop departs after the first one
+     * @param rows       first route_stops row of every trip
+     * @param starts     departure of every trip from the first stop, minutes since the start of the service day
+     * @param exceptions running times of the trips that do not follow the profile, null for the others
+     */
+    public record Pattern(short serviceId, short[] stopIds, short[] postIds, int[] profile, int[] rows, int[] starts, int[][] exceptions) {
+
+        public int tripCount() {
+            return rows.length;
+        }
+
+        public int row(int trip, int stopIndex) {
+            return rows[trip] + stopIndex;
+        }
+
+        public int departure(int trip, int stopIndex) {
+            int[] offsets = exceptions[trip];
+            return starts[trip] + (offsets == null ? profile[stopIndex] : offsets[stopIndex]);
+        }
+    }
+
+    /**
+     * The patterns passing a stop and the index of the stop within each of them.
+     */
+    public record Visits(int[] patterns, int[] stopIndices) {
+
+        public int size() {
+            return patterns.length;
+        }
+    }
+
+}
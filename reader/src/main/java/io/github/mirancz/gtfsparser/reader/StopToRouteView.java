@@ -0,0 +1,250 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@code stop_to_route} section, the trip patterns and the patterns passing every stop. The view keeps the
+ * offset of every pattern and the (small) per stop index as arrays, a {@link Cursor} decodes one pattern at a time
+ * into arrays it reuses.
+ */
+public class StopToRouteView {
+
+    private final ByteBuffer section;
+
+    private final int[] patternOffsets;
+
+    private final int[] visitStarts;
+    private final int[] visitPatterns;
+    private final int[] visitStopIndices;
+
+    StopToRouteView(ByteBuffer section) {
+        this.section = section;
+
+        ByteBuffer buffer = section.duplicate();
+        SectionReader reader = new SectionReader(buffer);
+
+        patternOffsets = new int[reader.readVarInt()];
+
+        // skipping a pattern takes decoding it
+        Cursor cursor = new Cursor();
+        for (int p = 0; p < patternOffsets.length; p++) {
+            patternOffsets[p] = buffer.position();
+            cursor.read(buffer, reader);
+        }
+
+        int stopCount = reader.readVarInt();
+        visitStarts = new int[stopCount + 1];
+        int[] patterns = new int[16];
+        int[] stopIndices = new int[16];
+
+        int visits = 0;
+        for (int stopId = 0; stopId < stopCount; stopId++) {
+            int count = reader.readVarInt();
+            if (visits + count > patterns.length) {
+                patterns = Arrays.copyOf(patterns, Math.max(patterns.length * 2, visits + count));
+                stopIndices = Arrays.copyOf(stopIndices, patterns.length);
+            }
+
+            int pattern = 0;
+            for (int i = 0; i < count; i++) {
+                patterns[visits] = pattern += reader.readVarInt();
+                stopIndices[visits] = reader.readVarInt();
+                visits++;
+            }
+            visitStarts[stopId + 1] = visits;
+        }
+
+        visitPatterns = Arrays.copyOf(patterns, visits);
+        visitStopIndices = Arrays.copyOf(stopIndices, visits);
+    }
+
+    public int patternCount() {
+        return patternOffsets.length;
+    }
+
+    /**
+     * @return max stop id + 1
+     */
+    public int stopCount() {
+        return visitStarts.length - 1;
+    }
+
+    /**
+     * @return number of patterns passing the stop
+     */
+    public int visitCount(int stopId) {
+        if (stopId < 0 || stopId + 1 >= visitStarts.length) return 0;
+        return visitStarts[stopId + 1] - visitStarts[stopId];
+    }
+
+    public int visitPattern(int stopId, int visit) {
+        return visitPatterns[visitStarts[stopId] + visit];
+    }
+
+    /**
+     * @return index of the stop within the pattern of the visit
+     */
+    public int visitStopIndex(int stopId, int visit) {
+        return visitStopIndices[visitStarts[stopId] + visit];
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Reusable view of one pattern, see {@link #moveTo}. Frequency runs are expanded, so every trip has its own start.
+     */
+    public final class Cursor {
+
+        private final ByteBuffer buffer = section.duplicate();
+        private final SectionReader reader = new SectionReader(buffer);
+
+        private int pattern = -1;
+        private int serviceId;
+        private int stopCount;
+        private int tripCount;
+
+        private int[] stopIds = new int[0];
+        private int[] postIds = new int[0];
+        private int[] profile = new int[0];
+        private int[] rows = new int[0];
+        private int[] starts = new int[0];
+        /**
+         * per trip the start of its running times in {@link #exceptions}, -1 if it follows the profile
+         */
+        private int[] exceptionStarts = new int[0];
+        private int[] exceptions = new int[0];
+
+        private Cursor() {
+        }
+
+        public void moveTo(int pattern) {
+            this.pattern = pattern;
+            buffer.position(patternOffsets[pattern]);
+            read(buffer, reader);
+        }
+
+        private void read(ByteBuffer buffer, SectionReader reader) {
+            serviceId = reader.readVarInt();
+
+            stopCount = reader.readVarInt();
+            if (stopIds.length < stopCount) {
+                stopIds = new int[stopCount];
+                postIds = new int[stopCount];
+                profile = new int[stopCount];
+            }
+            for (int i = 0; i < stopCount; i++) {
+                stopIds[i] = reader.readVarInt();
+                postIds[i] = reader.readVarInt();
+            }
+
+            if (stopCount > 0) profile[0] = 0;
+            for (int i = 1; i < stopCount; i++) {
+                profile[i] = profile[i - 1] + reader.readSignedVarInt();
+            }
+
+            tripCount = reader.readVarInt();
+            if (rows.length < tripCount) {
+                rows = new int[tripCount];
+                starts = new int[tripCount];
+                exceptionStarts = new int[tripCount];
+            }
+
+            int row = 0;
+            for (int j = 0; j < tripCount; j++) {
+                rows[j] = row += reader.readSignedVarInt();
+            }
+
+            int exceptionCount = 0;
+            int start = 0;
+            int j = 0;
+            while (j < tripCount) {
+                int header = reader.readVarInt();
+                int count = header >>> 1;
+
+                start += reader.readVarInt();
+                int headway = count > 1 ? reader.readVarInt() : 0;
+
+                for (int k = 0; k < count; k++) {
+                    starts[j + k] = start + k * headway;
+                    exceptionStarts[j + k] = -1;
+                }
+
+                if ((header & 1) != 0) {
+                    if (exceptions.length < exceptionCount + stopCount) {
+                        exceptions = Arrays.copyOf(exceptions, Math.max(exceptions.length * 2, exceptionCount + stopCount));
+                    }
+
+                    exceptionStarts[j] = exceptionCount;
+                    exceptions[exceptionCount] = 0;
+                    for (int i = 1; i < stopCount; i++) {
+                        exceptions[exceptionCount + i] = profile[i] + reader.readSignedVarInt();
+                    }
+                    exceptionCount += stopCount;
+                }
+
+                start = starts[j + count - 1];
+                j += count;
+            }
+        }
+
+        public int pattern() {
+            return pattern;
+        }
+
+        public int serviceId() {
+            return serviceId;
+        }
+
+        public int stopCount() {
+            return stopCount;
+        }
+
+        public int stopId(int stopIndex) {
+            return stopIds[stopIndex];
+        }
+
+        public int postId(int stopIndex) {
+            return postIds[stopIndex];
+        }
+
+        /**
+         * @return minutes the stop departs after the first one for the trips that follow the profile
+         */
+        public int profile(int stopIndex) {
+            return profile[stopIndex];
+        }
+
+        /**
+         * @return number of trips, sorted by their departure
+         */
+        public int tripCount() {
+            return tripCount;
+        }
+
+        /**
+         * @return the route_stops row of the trip at the stop
+         */
+        public int row(int trip, int stopIndex) {
+            return rows[trip] + stopIndex;
+        }
+
+        /**
+         * @return minutes since the start of the service day
+         */
+        public int departure(int trip, int stopIndex) {
+            int exception = exceptionStarts[trip];
+            return starts[trip] + (exception == -1 ? profile[stopIndex] : exceptions[exception + stopIndex]);
+        }
+
+        /**
+         * @return whether the running times of the trip differ from the profile
+         */
+        public boolean isException(int trip) {
+            return exceptionStarts[trip] != -1;
+        }
+    }
+
+}
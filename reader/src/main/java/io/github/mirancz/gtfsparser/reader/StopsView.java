@@ -0,0 +1,50 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code stops} section, records of {@code [boolean true, int id, int name, int parent station, double lat, double lon]}
+ * ended by {@code false}. The names are ids of the {@link Strings}.
+ */
+public class StopsView {
+
+    private static final int RECORD_SIZE = 29;
+
+    private final ByteBuffer section;
+    private final int size;
+
+    StopsView(ByteBuffer section) {
+        this.section = section;
+        this.size = (section.limit() - 1) / RECORD_SIZE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int id(int index) {
+        return section.getInt(offset(index) + 1);
+    }
+
+    public int nameId(int index) {
+        return section.getInt(offset(index) + 5);
+    }
+
+    public int parentStationId(int index) {
+        return section.getInt(offset(index) + 9);
+    }
+
+    public double lat(int index) {
+        return section.getDouble(offset(index) + 13);
+    }
+
+    public double lon(int index) {
+        return section.getDouble(offset(index) + 21);
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return index * RECORD_SIZE;
+    }
+
+}
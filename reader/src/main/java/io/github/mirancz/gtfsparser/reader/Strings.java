@@ -0,0 +1,68 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * View of the {@code strings} section, see {@code StringTable.write} of the generator.
+ * Nothing is decoded up front, a lookup decodes the strings of its block up to the requested one.
+ */
+public class Strings {
+
+    private final ByteBuffer section;
+    private final int count;
+    private final int blockSize;
+    private final int offsetsStart;
+    private final int dataStart;
+
+    private Strings(ByteBuffer section, int count, int blockSize, int offsetsStart) {
+        this.section = section;
+        this.count = count;
+        this.blockSize = blockSize;
+        this.offsetsStart = offsetsStart;
+        this.dataStart = offsetsStart + 4 * ((count + blockSize - 1) / blockSize);
+    }
+
+    public static Strings of(ByteBuffer section) {
+        ByteBuffer buffer = section.duplicate();
+        SectionReader reader = new SectionReader(buffer);
+
+        int count = reader.readVarInt();
+        int blockSize = reader.readVarInt();
+
+        return new Strings(section.duplicate(), count, blockSize, buffer.position());
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public String get(int id) {
+        return new String(getBytes(id), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return UTF-8 bytes of the string
+     */
+    public byte[] getBytes(int id) {
+        if (id < 0 || id >= count) throw new IndexOutOfBoundsException(id);
+
+        int block = id / blockSize;
+        ByteBuffer buffer = section.duplicate().position(dataStart + section.getInt(offsetsStart + 4 * block));
+        SectionReader reader = new SectionReader(buffer);
+
+        byte[] bytes = new byte[reader.readVarInt()];
+        buffer.get(bytes);
+
+        for (int i = block * blockSize + 1; i <= id; i++) {
+            int prefix = reader.readVarInt();
+            int suffix = reader.readVarInt();
+
+            bytes = Arrays.copyOf(bytes, prefix + suffix);
+            buffer.get(bytes, prefix, suffix);
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,89 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One of the two lists of the {@code transfers} section, each an int count followed by the records
+ * {@code [short from stop, short from post, short to stop, short to post, byte type, short min transfer time]},
+ * the trip transfers append {@code [int from trip, int to trip, short max waiting time]}.
+ */
+public class TransfersView {
+
+    private static final int RECORD_SIZE = 11;
+    private static final int TRIP_RECORD_SIZE = 21;
+
+    private final ByteBuffer section;
+    private final int start;
+    private final int recordSize;
+    private final boolean trips;
+    private final int size;
+
+    TransfersView(ByteBuffer section, int start, boolean trips) {
+        this.section = section;
+        this.start = start + 4;
+        this.recordSize = trips ? TRIP_RECORD_SIZE : RECORD_SIZE;
+        this.trips = trips;
+        this.size = section.getInt(start);
+    }
+
+    /**
+     * @return position right after the list starting at {@code start}
+     */
+    static int end(ByteBuffer section, int start, boolean trips) {
+        return start + 4 + section.getInt(start) * (trips ? TRIP_RECORD_SIZE : RECORD_SIZE);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int fromStopId(int index) {
+        return section.getShort(offset(index));
+    }
+
+    public int fromPostId(int index) {
+        return section.getShort(offset(index) + 2);
+    }
+
+    public int toStopId(int index) {
+        return section.getShort(offset(index) + 4);
+    }
+
+    public int toPostId(int index) {
+        return section.getShort(offset(index) + 6);
+    }
+
+    public int transferType(int index) {
+        return section.get(offset(index) + 8);
+    }
+
+    /**
+     * @return seconds
+     */
+    public int minTransferTime(int index) {
+        return section.getShort(offset(index) + 9);
+    }
+
+    public int fromTripId(int index) {
+        return section.getInt(tripOffset(index) + 11);
+    }
+
+    public int toTripId(int index) {
+        return section.getInt(tripOffset(index) + 15);
+    }
+
+    public int maxWaitingTime(int index) {
+        return section.getShort(tripOffset(index) + 19);
+    }
+
+    private int tripOffset(int index) {
+        if (!trips) throw new IllegalStateException("Not a list of trip transfers");
+        return offset(index);
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return start + index * recordSize;
+    }
+
+}
@@ -0,0 +1,100 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * A section of the {@code travel_times} file, the travel times between every two stops of {@code stop_mapping} departing
+ * at one reference time:
+ * <pre>
+ * int stop count, int date, short minutes since the start of the service day
+ * stop count * stop count bytes, row by row from every origin stop, see {@link #quantize}
+ * </pre>
+ */
+public class TravelTimesView {
+
+    /**
+     * the stop cannot be reached
+     */
+    public static final int UNREACHABLE = 255;
+    /**
+     * the travel time is over {@link #MAX_MINUTES}
+     */
+    public static final int LONGER = 254;
+
+    private static final int EXACT = 128;
+    private static final int STEP = 4;
+
+    /**
+     * the longest travel time that is kept, {@link #minutes(int) minutes(253)}
+     */
+    public static final int MAX_MINUTES = EXACT + (LONGER - 1 - EXACT) * STEP;
+
+    private static final int HEADER_SIZE = 10;
+
+    private final ByteBuffer section;
+    private final int stopCount;
+
+    TravelTimesView(ByteBuffer section) {
+        this.section = section;
+        this.stopCount = section.getInt(0);
+    }
+
+    /**
+     * Travel times under 128 minutes are kept to the minute, longer ones up to {@link #MAX_MINUTES} (628) are rounded up
+     * to 4 minutes and the ones over it are stored as {@link #LONGER}.
+     *
+     * @param minutes -1 if the stop cannot be reached
+     */
+    public static int quantize(int minutes) {
+        if (minutes < 0) return UNREACHABLE;
+        if (minutes < EXACT) return minutes;
+        if (minutes > MAX_MINUTES) return LONGER;
+
+        return EXACT + (minutes - EXACT + STEP - 1) / STEP;
+    }
+
+    /**
+     * @return -1 for {@link #UNREACHABLE}, {@link #MAX_MINUTES} + 1 for {@link #LONGER} as the travel time is at least
+     * that long
+     */
+    public static int minutes(int code) {
+        if (code == UNREACHABLE) return -1;
+        if (code == LONGER) return MAX_MINUTES + 1;
+        if (code < EXACT) return code;
+
+        return EXACT + (code - EXACT) * STEP;
+    }
+
+    public int stopCount() {
+        return stopCount;
+    }
+
+    public LocalDate date() {
+        int date = section.getInt(4);
+        return LocalDate.of(date >>> 16, (date >>> 8) & 0xFF, date & 0xFF);
+    }
+
+    /**
+     * @return minutes since the start of the service day
+     */
+    public int time() {
+        return section.getShort(8);
+    }
+
+    /**
+     * @return the quantized travel time, see {@link #minutes(int)}
+     */
+    public int code(int fromStopId, int toStopId) {
+        return section.get(HEADER_SIZE + fromStopId * stopCount + toStopId) & 0xFF;
+    }
+
+    /**
+     * @return minutes, waiting at the origin included, -1 if the stop cannot be reached, {@link #MAX_MINUTES} + 1 if
+     * it takes longer than that
+     */
+    public int travelTime(int fromStopId, int toStopId) {
+        return minutes(code(fromStopId, toStopId));
+    }
+
+}
@@ -0,0 +1,63 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code trips} section, indexed by trip id. Records are {@code [short service, short line, int headsign,
+ * short block, byte data, int first row, byte stop count]}, the headsign is an id of the {@link Strings} and the rows
+ * are the ones of {@link RouteStopsView}.
+ */
+public class TripsView {
+
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_SIZE = 16;
+
+    private final ByteBuffer section;
+    private final int size;
+
+    TripsView(ByteBuffer section) {
+        this.section = section;
+        this.size = section.getInt(0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int serviceId(int tripId) {
+        return section.getShort(offset(tripId));
+    }
+
+    public int lineId(int tripId) {
+        return section.getShort(offset(tripId) + 2);
+    }
+
+    public int headsignId(int tripId) {
+        return section.getInt(offset(tripId) + 4);
+    }
+
+    /**
+     * @return -1 if the trip is not part of a block
+     */
+    public int blockId(int tripId) {
+        return section.getShort(offset(tripId) + 8);
+    }
+
+    public boolean isWheelchairAccessible(int tripId) {
+        return (section.get(offset(tripId) + 10) & 1) != 0;
+    }
+
+    public int firstRow(int tripId) {
+        return section.getInt(offset(tripId) + 11);
+    }
+
+    public int stopCount(int tripId) {
+        return section.get(offset(tripId) + 15);
+    }
+
+    private int offset(int tripId) {
+        if (tripId < 0 || tripId >= size) throw new IndexOutOfBoundsException(tripId);
+        return HEADER_SIZE + tripId * RECORD_SIZE;
+    }
+
+}
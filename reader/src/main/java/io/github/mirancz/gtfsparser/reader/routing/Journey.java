@@ -0,0 +1,39 @@
+package io.github.mirancz.gtfsparser.reader.routing;
+
+import java.util.List;
+
+/**
+ * A journey found by {@link Raptor}, times are minutes since the start of the service day.
+ */
+public record Journey(List<Leg> legs) {
+
+    public int departure() {
+        return legs.isEmpty() ? -1 : legs.getFirst().departure();
+    }
+
+    public int arrival() {
+        return legs.isEmpty() ? -1 : legs.getLast().arrival();
+    }
+
+    /**
+     * @return number of changes between trips
+     */
+    public int transfers() {
+        int trips = 0;
+        for (Leg leg : legs) {
+            if (!leg.isWalk()) trips++;
+        }
+        return Math.max(0, trips - 1);
+    }
+
+    /**
+     * @param tripId the trip id of the container, -1 for a walk between two stops
+     */
+    public record Leg(int fromStop, int toStop, int departure, int arrival, int tripId) {
+
+        public boolean isWalk() {
+            return tripId == -1;
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package io.github.mirancz.gtfsparser.reader.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * All the best journeys departing within a time window (rRAPTOR): a {@link Raptor} search runs for every departure
+ * from the source in the window, latest first, keeping the labels of the later departures as they stay reachable by
+ * waiting.
+ * <p>
+ * The departures are split into slices searched in parallel on a fork join pool, each worker thread keeps its own
+ * {@link Raptor} for the life of the instance. Instances are thread safe.
+ */
+public final class ProfileSearch {
+
+    /**
+     * departures per slice at least, the labels are only kept within a slice
+     */
+    private static final int MIN_SLICE = 8;
+
+    private final Timetable timetable;
+    private final int maxTransfers;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Raptor> raptors;
+
+    public ProfileSearch(Timetable timetable, int maxTransfers) {
+        this(timetable, maxTransfers, ForkJoinPool.commonPool());
+    }
+
+    public ProfileSearch(Timetable timetable, int maxTransfers, ForkJoinPool pool) {
+        this.timetable = timetable;
+        this.maxTransfers = maxTransfers;
+        this.pool = pool;
+        this.raptors = ThreadLocal.withInitial(() -> new Raptor(timetable, maxTransfers));
+    }
+
+    /**
+     * @param day  index of the day of the calendar
+     * @param from minutes since the start of the service day, inclusive
+     * @param to   minutes since the start of the service day, inclusive
+     * @return the Pareto optimal options, no other option departs later, arrives earlier and takes fewer transfers.
+     * Sorted by departure, then by transfers. Empty if the source is the target. Walking straight to the target can
+     * depart at any time, it is only an option at the departures of the trips
+     */
+    public List<Option> search(int source, int target, int day, int from, int to) {
+        if (source < 0 || source >= timetable.stopCount()) throw new IllegalArgumentException("Unknown stop: " + source);
+        if (target < 0 || target >= timetable.stopCount()) throw new IllegalArgumentException("Unknown stop: " + target);
+
+        int[] departures = source == target ? new int[0] : departures(source, day, from, to);
+        if (departures.length == 0) return List.of();
+
+        // per departure and transfer count, the arrival at the target or -1
+        int width = maxTransfers + 1;
+        int[] arrivals = new int[departures.length * width];
+
+        int slices = Math.max(1, Math.min(pool.getParallelism() * 4, departures.length / MIN_SLICE));
+        pool.invoke(new Slices(source, target, day, departures, arrivals, 0, slices, slices));
+
+        return pareto(departures, arrivals, width);
+    }
+
+    /**
+     * @return the distinct times, latest first, a trip departs the source or the stops a walk from it leads to, less
+     * the walk
+     */
+    private int[] departures(int source, int day, int from, int to) {
+        IntStream.Builder times = IntStream.builder();
+
+        addDepartures(times, source, 0, day, from, to);
+        for (int j = timetable.transferStart(source); j < timetable.transferEnd(source); j++) {
+            addDepartures(times, timetable.transferStop(j), timetable.transferTime(j), day, from, to);
+        }
+
+        return times.build().map(time -> -time).sorted().distinct().map(time -> -time).toArray();
+    }
+
+    private void addDepartures(IntStream.Builder times, int stop, int walk, int day, int from, int to) {
+        for (int j = timetable.stopRouteStart(stop); j < timetable.stopRouteEnd(stop); j++) {
+            int route = timetable.stopRoute(j);
+            int stopIndex = timetable.stopRouteIndex(j);
+            if (!timetable.isActive(route, day) || stopIndex == timetable.routeStopCount(route) - 1) continue;
+
+            for (int trip = timetable.routeFirstTrip(route); trip < timetable.routeEndTrip(route); trip++) {
+                int time = timetable.departure(trip, stopIndex) - walk;
+                if (time >= from && time <= to) times.add(time);
+            }
+        }
+    }
+
+    private static List<Option> pareto(int[] departures, int[] arrivals, int width) {
+        List<Option> options = new ArrayList<>();
+
+        // per transfer count, the earliest arrival of the options taken so far with at most as many transfers
+        int[] earliest = new int[width];
+        Arrays.fill(earliest, Integer.MAX_VALUE);
+
+        // latest departure first, so every option taken before departs no earlier
+        for (int i = 0; i < departures.length; i++) {
+            for (int transfers = 0; transfers < width; transfers++) {
+                int arrival = arrivals[i * width + transfers];
+                if (arrival == -1 || arrival >= earliest[transfers]) continue;
+
+                options.add(new Option(departures[i], arrival, transfers));
+                for (int k = transfers; k < width; k++) {
+                    earliest[k] = Math.min(earliest[k], arrival);
+                }
+            }
+        }
+
+        options.sort(Comparator.comparingInt(Option::departure).thenComparingInt(Option::transfers));
+        return options;
+    }
+
+    /**
+     * Splits the slices in halves until a single one is left, which is searched by the current worker.
+     */
+    private final class Slices extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int source;
+        private final int target;
+        private final int day;
+        private final int[] departures;
+        private final int[] arrivals;
+
+        private final int first;
+        private final int end;
+        private final int count;
+
+        private Slices(int source, int target, int day, int[] departures, int[] arrivals, int first, int end, int count) {
+            this.source = source;
+            this.target = target;
+            this.day = day;
+            this.departures = departures;
+            this.arrivals = arrivals;
+            this.first = first;
+            this.end = end;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - first > 1) {
+                int mid = (first + end) >>> 1;
+                invokeAll(
+                        new Slices(source, target, day, departures, arrivals, first, mid, count),
+                        new Slices(source, target, day, departures, arrivals, mid, end, count)
+                );
+                return;
+            }
+
+            Raptor raptor = raptors.get();
+            int width = maxTransfers + 1;
+
+            int start = (int) ((long) departures.length * first / count);
+            int stop = (int) ((long) departures.length * end / count);
+            for (int i = start; i < stop; i++) {
+                raptor.search(source, target, day, departures[i], i > start);
+
+                for (int transfers = 0; transfers < width; transfers++) {
+                    arrivals[i * width + transfers] = raptor.arrival(target, transfers);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param departure minutes since the start of the service day
+     * @param arrival   minutes since the start of the service day
+     */
+    public record Option(int departure, int arrival, int transfers) {
+    }
+
+}
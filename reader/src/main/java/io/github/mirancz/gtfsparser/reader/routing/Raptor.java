@@ -0,0 +1,401 @@
+package io.github.mirancz.gtfsparser.reader.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Earliest arrival search over a {@link Timetable} with the round based RAPTOR algorithm, round k finds the journeys
+ * taking k trips.
+ * <p>
+ * Every stop has two labels per round, the arrival by a trip and the arrival on foot. Only the arrivals by a trip are
+ * walked on from, as walks are never chained, and only they take the change time of the stop before boarding. Keeping
+ * them apart means a walk arriving first does not hide a trip arriving a bit later, which is the one to walk on from.
+ * <p>
+ * All the labels live in arrays allocated with the instance and reset by every search, so searching allocates
+ * nothing. An instance is not thread safe, use one per thread over a shared timetable.
+ */
+public final class Raptor {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final Timetable timetable;
+    private final int stopCount;
+    private final int maxRounds;
+
+    // per round and stop, the arrival by a trip
+    private final int[] tripArrivals;
+    private final int[] trips;
+    /**
+     * stop the trip was boarded at
+     */
+    private final int[] boardStops;
+    private final int[] boardTimes;
+
+    // per round and stop, the arrival on foot
+    private final int[] walkArrivals;
+    /**
+     * stop the walk started at, -1 for the source
+     */
+    private final int[] walkStops;
+    private final int[] walkTimes;
+
+    // per stop
+    private final boolean[] marked;
+    private final int[] markedStops;
+    private int markedCount;
+
+    // per route, the first stop index to scan from, -1 if the route is not queued
+    private final int[] routeStarts;
+    private final int[] queuedRoutes;
+    private int queuedCount;
+
+    private int source = -1;
+    /**
+     * the last round with labels, the labels of every round are at least as early as the ones of the round before
+     */
+    private int rounds;
+
+    /**
+     * @param maxTransfers the most transfers between trips a journey may take
+     */
+    public Raptor(Timetable timetable, int maxTransfers) {
+        if (maxTransfers < 0) throw new IllegalArgumentException("Negative transfer count: " + maxTransfers);
+
+        this.timetable = timetable;
+        this.stopCount = timetable.stopCount();
+        this.maxRounds = maxTransfers + 1;
+
+        int labels = (maxRounds + 1) * stopCount;
+        this.tripArrivals = new int[labels];
+        this.trips = new int[labels];
+        this.boardStops = new int[labels];
+        this.boardTimes = new int[labels];
+        this.walkArrivals = new int[labels];
+        this.walkStops = new int[labels];
+        this.walkTimes = new int[labels];
+        Arrays.fill(tripArrivals, UNREACHED);
+        Arrays.fill(walkArrivals, UNREACHED);
+
+        this.marked = new boolean[stopCount];
+        this.markedStops = new int[stopCount];
+
+        this.routeStarts = new int[timetable.routeCount()];
+        this.queuedRoutes = new int[timetable.routeCount()];
+        Arrays.fill(routeStarts, -1);
+    }
+
+    /**
+     * Finds the earliest arrival at every stop.
+     *
+     * @param day  index of the day of the calendar
+     * @param time minutes since the start of the service day
+     */
+    public void search(int source, int day, int time) {
+        search(source, -1, day, time);
+    }
+
+    /**
+     * Finds the earliest arrival at the target, stops reached later than it are not followed any further.
+     *
+     * @param target -1 to find the earliest arrival at every stop
+     * @param day    index of the day of the calendar
+     * @param time   minutes since the start of the service day
+     */
+    public void search(int source, int target, int day, int time) {
+        search(source, target, day, time, false);
+    }
+
+    /**
+     * @param keepLabels keep the labels of the previous search, which has to be from the same source to the same target
+     *                   on the same day departing no earlier. The labels of the later departures stay valid, so only
+     *                   the journeys they do not already beat are searched, see {@link ProfileSearch}
+     */
+    void search(int source, int target, int day, int time, boolean keepLabels) {
+        if (source < 0 || source >= stopCount) throw new IllegalArgumentException("Unknown stop: " + source);
+        if (target < -1 || target >= stopCount) throw new IllegalArgumentException("Unknown stop: " + target);
+
+        if (!keepLabels) {
+            if (this.source != -1) {
+                Arrays.fill(tripArrivals, 0, (rounds + 1) * stopCount, UNREACHED);
+                Arrays.fill(walkArrivals, 0, (rounds + 1) * stopCount, UNREACHED);
+            }
+            this.rounds = 0;
+        }
+        this.source = source;
+
+        // the source is reached on foot, so it is boarded at without a change time
+        if (time < walkArrivals[source]) {
+            walkArrivals[source] = time;
+            walkStops[source] = -1;
+            walkTimes[source] = time;
+            mark(source);
+        }
+
+        walk(0, target);
+
+        int round = 1;
+        for (; round <= maxRounds && markedCount > 0; round++) {
+            merge(round);
+            rounds = Math.max(rounds, round);
+
+            queueRoutes(day);
+
+            for (int i = 0; i < queuedCount; i++) {
+                int route = queuedRoutes[i];
+                scan(route, routeStarts[route], round, target);
+                routeStarts[route] = -1;
+            }
+            queuedCount = 0;
+
+            walk(round, target);
+        }
+
+        // rounds left from an earlier search still have to beat the ones before them
+        for (; round <= rounds; round++) {
+            merge(round);
+        }
+
+        for (int i = 0; i < markedCount; i++) {
+            marked[markedStops[i]] = false;
+        }
+        markedCount = 0;
+    }
+
+    /**
+     * Takes the labels of the previous round where they beat the ones of the round.
+     */
+    private void merge(int round) {
+        int previous = (round - 1) * stopCount;
+        int current = round * stopCount;
+
+        for (int stop = 0; stop < stopCount; stop++) {
+            if (tripArrivals[previous + stop] < tripArrivals[current + stop]) {
+                tripArrivals[current + stop] = tripArrivals[previous + stop];
+                trips[current + stop] = trips[previous + stop];
+                boardStops[current + stop] = boardStops[previous + stop];
+                boardTimes[current + stop] = boardTimes[previous + stop];
+            }
+            if (walkArrivals[previous + stop] < walkArrivals[current + stop]) {
+                walkArrivals[current + stop] = walkArrivals[previous + stop];
+                walkStops[current + stop] = walkStops[previous + stop];
+                walkTimes[current + stop] = walkTimes[previous + stop];
+            }
+        }
+    }
+
+    /**
+     * Queues the routes running on the day through the marked stops, each from the first marked stop, and unmarks them.
+     */
+    private void queueRoutes(int day) {
+        for (int i = 0; i < markedCount; i++) {
+            int stop = markedStops[i];
+            marked[stop] = false;
+
+            for (int j = timetable.stopRouteStart(stop); j < timetable.stopRouteEnd(stop); j++) {
+                int route = timetable.stopRoute(j);
+                if (!timetable.isActive(route, day)) continue;
+
+                int stopIndex = timetable.stopRouteIndex(j);
+                int start = routeStarts[route];
+                if (start == -1) {
+                    queuedRoutes[queuedCount++] = route;
+                    routeStarts[route] = stopIndex;
+                } else if (stopIndex < start) {
+                    routeStarts[route] = stopIndex;
+                }
+            }
+        }
+        markedCount = 0;
+    }
+
+    private void scan(int route, int start, int round, int target) {
+        int previous = (round - 1) * stopCount;
+        int current = round * stopCount;
+
+        int stops = timetable.routeStopCount(route);
+        int trip = -1;
+        int boardStop = -1;
+        int boardTime = 0;
+
+        for (int i = start; i < stops; i++) {
+            int stop = timetable.routeStop(route, i);
+
+            if (trip != -1) {
+                int arrival = timetable.arrival(trip, i);
+                if (arrival < tripArrivals[current + stop] && arrival < best(current, target)) {
+                    tripArrivals[current + stop] = arrival;
+                    trips[current + stop] = trip;
+                    boardStops[current + stop] = boardStop;
+                    boardTimes[current + stop] = boardTime;
+                    mark(stop);
+                }
+            }
+
+            int ready = ready(previous, stop);
+            if (ready == UNREACHED || i == stops - 1) continue;
+            if (trip != -1 && timetable.departure(trip, i) < ready) continue;
+
+            int earlier = earliestTrip(route, i, ready, trip == -1 ? timetable.routeEndTrip(route) : trip + 1);
+            if (earlier != -1 && earlier != trip) {
+                trip = earlier;
+                boardStop = stop;
+                boardTime = timetable.departure(trip, i);
+            }
+        }
+    }
+
+    /**
+     * @param end the trips from this one on are not searched
+     * @return the first trip before the end departing the stop at or after the time, -1 if there is none
+     */
+    private int earliestTrip(int route, int stopIndex, int time, int end) {
+        int low = timetable.routeFirstTrip(route);
+        int high = end;
+
+        // the trips of a route never overtake each other, so their departures from every stop are sorted
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timetable.departure(mid, stopIndex) < time) low = mid + 1;
+            else high = mid;
+        }
+        return low < end ? low : -1;
+    }
+
+    /**
+     * Walks from the stops marked in the round, which were reached by a trip, or from the source in round 0.
+     */
+    private void walk(int round, int target) {
+        int current = round * stopCount;
+        int count = markedCount;
+
+        for (int i = 0; i < count; i++) {
+            int from = markedStops[i];
+            int departure = round == 0 ? walkArrivals[current + from] : tripArrivals[current + from];
+
+            for (int j = timetable.transferStart(from); j < timetable.transferEnd(from); j++) {
+                int to = timetable.transferStop(j);
+                int arrival = departure + timetable.transferTime(j);
+
+                // a walk arriving after the trip is still worth it if it beats the change time
+                if (arrival < walkArrivals[current + to] && arrival < ready(current, to) && arrival < best(current, target)) {
+                    walkArrivals[current + to] = arrival;
+                    walkStops[current + to] = from;
+                    walkTimes[current + to] = departure;
+                    mark(to);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the earliest time a trip can be boarded at the stop with the labels of the round
+     */
+    private int ready(int round, int stop) {
+        int byTrip = tripArrivals[round + stop];
+        if (byTrip != UNREACHED) byTrip += timetable.changeTime(stop);
+        return Math.min(byTrip, walkArrivals[round + stop]);
+    }
+
+    /**
+     * The labels of a round are never later than the ones of the rounds before it, so within a single search this is
+     * the earliest arrival so far.
+     *
+     * @param target -1 if there is none
+     */
+    private int best(int round, int target) {
+        return target == -1 ? UNREACHED : Math.min(tripArrivals[round + target], walkArrivals[round + target]);
+    }
+
+    private void mark(int stop) {
+        if (marked[stop]) return;
+
+        marked[stop] = true;
+        markedStops[markedCount++] = stop;
+    }
+
+    /**
+     * @return minutes since the start of the service day, -1 if the last search did not reach the stop
+     */
+    public int arrival(int stop) {
+        int arrival = label(rounds, stop);
+        return arrival == UNREACHED ? -1 : arrival;
+    }
+
+    private int label(int round, int stop) {
+        int label = round * stopCount + stop;
+        return Math.min(tripArrivals[label], walkArrivals[label]);
+    }
+
+    /**
+     * @return the earliest arrival taking at most the given number of transfers, -1 if there is none
+     */
+    public int arrival(int stop, int transfers) {
+        int arrival = label(Math.min(transfers + 1, rounds), stop);
+        return arrival == UNREACHED ? -1 : arrival;
+    }
+
+    /**
+     * @return the fewest transfers reaching the stop at its earliest arrival, -1 if the stop was not reached
+     */
+    public int transfers(int stop) {
+        int round = bestRound(stop);
+        return round == -1 ? -1 : Math.max(0, round - 1);
+    }
+
+    private int bestRound(int stop) {
+        int best = label(rounds, stop);
+        if (best == UNREACHED) return -1;
+
+        int round = rounds;
+        while (round > 0 && label(round - 1, stop) == best) {
+            round--;
+        }
+        return round;
+    }
+
+    /**
+     * Rebuilds the journey of the last search to the stop, taking the fewest transfers among the earliest ones.
+     *
+     * @return null if the stop was not reached
+     */
+    public Journey journey(int stop) {
+        int round = bestRound(stop);
+        if (round == -1) return null;
+
+        List<Journey.Leg> legs = new ArrayList<>();
+        int label = round * stopCount + stop;
+        boolean walked = walkArrivals[label] < tripArrivals[label];
+
+        while (true) {
+            label = round * stopCount + stop;
+
+            if (walked) {
+                int from = walkStops[label];
+                if (from == -1) break;
+
+                int departure = walkTimes[label];
+                legs.add(new Journey.Leg(from, stop, departure, walkArrivals[label], -1));
+                if (from == source) break;
+
+                // the walk started from a trip arrival, take it from the first round it was there in time
+                while (round > 1 && tripArrivals[(round - 1) * stopCount + from] <= departure) {
+                    round--;
+                }
+                stop = from;
+                walked = false;
+            } else {
+                int from = boardStops[label];
+                int departure = boardTimes[label];
+                legs.add(new Journey.Leg(from, stop, departure, tripArrivals[label], timetable.tripId(trips[label])));
+
+                round--;
+                stop = from;
+                walked = walkArrivals[round * stopCount + stop] <= departure;
+            }
+        }
+
+        return new Journey(legs.reversed());
+    }
+
+}
@@ -0,0 +1,470 @@
+package io.github.mirancz.gtfsparser.reader.routing;
+
+import io.github.mirancz.gtfsparser.reader.FootpathsView;
+import io.github.mirancz.gtfsparser.reader.GtfsData;
+import io.github.mirancz.gtfsparser.reader.RouteStopsView;
+import io.github.mirancz.gtfsparser.reader.ServiceDaysView;
+import io.github.mirancz.gtfsparser.reader.StopToRouteView;
+import io.github.mirancz.gtfsparser.reader.TransfersView;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * The timetable of the container laid out as flat arrays for {@link Raptor}. Stops are the stop ids of the container,
+ * the posts of a stop are not told apart.
+ * <p>
+ * Every trip pattern of {@code stop_to_route} becomes one or more routes whose trips never overtake each other, so the
+ * first trip departing a stop late enough is also the first one to reach every following stop. The times of the trips
+ * of a route are stored trip by trip, {@code stopCount} entries per trip.
+ * <p>
+ * Immutable once built, a single instance can be shared by any number of {@link Raptor}s.
+ */
+public final class Timetable {
+
+    // transfer_type of transfers.txt
+    private static final int TYPE_MIN_TIME = 2;
+    private static final int TYPE_NOT_POSSIBLE = 3;
+
+    /**
+     * minutes of a walk between two stops transfers.txt says cannot be transferred between
+     */
+    private static final int NOT_POSSIBLE = 0xFFFF;
+
+    private final int stopCount;
+
+    // per route
+    private final int[] routeStopStarts;
+    private final int[] routeTripStarts;
+    private final int[] routeServices;
+    // per route stop
+    private final int[] routeStops;
+    // per route trip
+    private final int[] tripIds;
+    private final int[] tripTimeStarts;
+    // per route trip and stop, minutes since the start of the service day
+    private final int[] arrivals;
+    private final int[] departures;
+
+    // per stop, routes passing the stop and the index of the stop within them
+    private final int[] stopRouteStarts;
+    private final int[] stopRoutes;
+    private final int[] stopRouteIndices;
+
+    // per stop, the transfers to other stops
+    private final int[] transferStarts;
+    private final int[] transferStops;
+    private final int[] transferTimes;
+    // per stop, the minutes needed to change between two trips at the stop
+    private final int[] changeTimes;
+
+    private final int dayCount;
+    private final int serviceWords;
+    private final long[] serviceDays;
+
+    private Timetable(Builder builder) {
+        this.stopCount = builder.stopCount;
+        this.routeStopStarts = Arrays.copyOf(builder.routeStopStarts, builder.routeCount + 1);
+        this.routeTripStarts = Arrays.copyOf(builder.routeTripStarts, builder.routeCount + 1);
+        this.routeServices = Arrays.copyOf(builder.routeServices, builder.routeCount);
+        this.routeStops = Arrays.copyOf(builder.routeStops, builder.routeStopStarts[builder.routeCount]);
+        this.tripIds = Arrays.copyOf(builder.tripIds, builder.routeTripStarts[builder.routeCount]);
+        this.tripTimeStarts = Arrays.copyOf(builder.tripTimeStarts, tripIds.length);
+        this.arrivals = Arrays.copyOf(builder.arrivals, builder.timeCount);
+        this.departures = Arrays.copyOf(builder.departures, builder.timeCount);
+
+        int[][] stopIndex = builder.stopIndex(routeStopStarts, routeStops);
+        this.stopRouteStarts = stopIndex[0];
+        this.stopRoutes = stopIndex[1];
+        this.stopRouteIndices = stopIndex[2];
+
+        this.transferStarts = builder.transferStarts;
+        this.transferStops = builder.transferStops;
+        this.transferTimes = builder.transferTimes;
+        this.changeTimes = builder.changeTimes;
+
+        this.dayCount = builder.dayCount;
+        this.serviceWords = builder.serviceWords;
+        this.serviceDays = builder.serviceDays;
+    }
+
+    /**
+     * Reads {@code stop_to_route}, {@code route_stops}, {@code transfers}, {@code service_days} and {@code footpaths}
+     * if there is one.
+     * <p>
+     * Transfers of type 2 between two stops become walks taking their min_transfer_time rounded up to minutes, the
+     * ones within a stop set how long a change at the stop takes (the longest of them, as the posts are not told apart).
+     * The footpaths between the posts of two stops become walks as well, unless transfers.txt lists the two stops.
+     * Transfers of type 3 (not possible) rule out walking between the two stops. The other types have no time to take
+     * and are left out, as are the transfers between two specific trips.
+     */
+    public static Timetable of(GtfsData data) {
+        StopToRouteView patterns = data.stopToRoute();
+        RouteStopsView routeStops = data.routeStops();
+        TransfersView transfers = data.transfers();
+
+        int stopCount = patterns.stopCount();
+        for (int i = 0; i < transfers.size(); i++) {
+            stopCount = Math.max(stopCount, Math.max(transfers.fromStopId(i), transfers.toStopId(i)) + 1);
+        }
+
+        FootpathsView footpaths = data.hasSection("footpaths") ? data.footpaths() : null;
+        if (footpaths != null) {
+            for (int post = 0; post < footpaths.postCount(); post++) {
+                stopCount = Math.max(stopCount, footpaths.stopId(post) + 1);
+            }
+        }
+
+        Builder builder = new Builder(stopCount);
+        builder.addPatterns(patterns, routeStops, data.serviceDays());
+        builder.addWalks(transfers, footpaths);
+
+        return new Timetable(builder);
+    }
+
+    public int stopCount() {
+        return stopCount;
+    }
+
+    public int routeCount() {
+        return routeServices.length;
+    }
+
+    public int tripCount() {
+        return tripIds.length;
+    }
+
+    /**
+     * @return number of days of the calendar, see {@link ServiceDaysView#dayIndex}
+     */
+    public int dayCount() {
+        return dayCount;
+    }
+
+    int routeStopCount(int route) {
+        return routeStopStarts[route + 1] - routeStopStarts[route];
+    }
+
+    int routeStop(int route, int stopIndex) {
+        return routeStops[routeStopStarts[route] + stopIndex];
+    }
+
+    int routeFirstTrip(int route) {
+        return routeTripStarts[route];
+    }
+
+    int routeEndTrip(int route) {
+        return routeTripStarts[route + 1];
+    }
+
+    boolean isActive(int route, int day) {
+        int service = routeServices[route];
+        if (service == -1 || day < 0 || day >= dayCount) return false;
+
+        return (serviceDays[service * serviceWords + (day >>> 6)] & 1L << day) != 0;
+    }
+
+    /**
+     * @param trip index of the trip across all routes
+     */
+    int arrival(int trip, int stopIndex) {
+        return arrivals[tripTimeStarts[trip] + stopIndex];
+    }
+
+    int departure(int trip, int stopIndex) {
+        return departures[tripTimeStarts[trip] + stopIndex];
+    }
+
+    /**
+     * @return the trip id of the container
+     */
+    public int tripId(int trip) {
+        return tripIds[trip];
+    }
+
+    int stopRouteStart(int stop) {
+        return stopRouteStarts[stop];
+    }
+
+    int stopRouteEnd(int stop) {
+        return stopRouteStarts[stop + 1];
+    }
+
+    int stopRoute(int index) {
+        return stopRoutes[index];
+    }
+
+    int stopRouteIndex(int index) {
+        return stopRouteIndices[index];
+    }
+
+    int transferStart(int stop) {
+        return transferStarts[stop];
+    }
+
+    int transferEnd(int stop) {
+        return transferStarts[stop + 1];
+    }
+
+    int transferStop(int index) {
+        return transferStops[index];
+    }
+
+    int transferTime(int index) {
+        return transferTimes[index];
+    }
+
+    int changeTime(int stop) {
+        return changeTimes[stop];
+    }
+
+    private static final class Builder {
+
+        private final int stopCount;
+
+        private int routeCount;
+        private int[] routeStopStarts = new int[17];
+        private int[] routeTripStarts = new int[17];
+        private int[] routeServices = new int[16];
+        private int[] routeStops = new int[64];
+
+        private int[] tripIds = new int[64];
+        private int[] tripTimeStarts = new int[64];
+
+        private int timeCount;
+        private int[] arrivals = new int[256];
+        private int[] departures = new int[256];
+
+        private int[] transferStarts;
+        private int[] transferStops;
+        private int[] transferTimes;
+        private int[] changeTimes;
+
+        private int dayCount;
+        private int serviceWords;
+        private long[] serviceDays;
+
+        private Builder(int stopCount) {
+            this.stopCount = stopCount;
+        }
+
+        private void addPatterns(StopToRouteView patterns, RouteStopsView routeStops, ServiceDaysView days) {
+            dayCount = days.dayCount();
+            serviceWords = (dayCount + 63) / 64;
+            serviceDays = new long[days.serviceCount() * serviceWords];
+            for (int service = 0; service < days.serviceCount(); service++) {
+                for (int day = 0; day < dayCount; day++) {
+                    if (days.isActive(service, day)) serviceDays[service * serviceWords + (day >>> 6)] |= 1L << day;
+                }
+            }
+
+            StopToRouteView.Cursor pattern = patterns.cursor();
+            RouteStopsView.Cursor rows = routeStops.cursor();
+
+            // routes of the current pattern, filled in order, every one of them gets the trips that do not overtake its last one
+            int[] splitRoutes = new int[4];
+            int[] lastTrips = new int[4];
+
+            for (int p = 0; p < patterns.patternCount(); p++) {
+                pattern.moveTo(p);
+
+                int stops = pattern.stopCount();
+                int service = days.serviceIndex(pattern.serviceId());
+                int firstRoute = routeCount;
+
+                for (int j = 0; j < pattern.tripCount(); j++) {
+                    int timeStart = addTimes(rows, pattern.row(j, 0), stops);
+
+                    int split = 0;
+                    while (split < routeCount - firstRoute && overtakes(timeStart, lastTrips[split], stops)) {
+                        split++;
+                    }
+
+                    if (split == routeCount - firstRoute) {
+                        if (split == splitRoutes.length) {
+                            splitRoutes = Arrays.copyOf(splitRoutes, split * 2);
+                            lastTrips = Arrays.copyOf(lastTrips, split * 2);
+                        }
+                        splitRoutes[split] = addRoute(pattern, service);
+                    }
+                    lastTrips[split] = timeStart;
+
+                    addTrip(splitRoutes[split], routeStops.tripId(routeStops.tripIndexOf(pattern.row(j, 0))), timeStart);
+                }
+            }
+        }
+
+        /**
+         * @return whether the trip reaches or leaves some stop earlier than the previous trip
+         */
+        private boolean overtakes(int timeStart, int previousStart, int stops) {
+            for (int i = 0; i < stops; i++) {
+                if (arrivals[timeStart + i] < arrivals[previousStart + i]) return true;
+                if (departures[timeStart + i] < departures[previousStart + i]) return true;
+            }
+            return false;
+        }
+
+        private int addTimes(RouteStopsView.Cursor rows, int firstRow, int stops) {
+            if (timeCount + stops > arrivals.length) {
+                arrivals = Arrays.copyOf(arrivals, Math.max(arrivals.length * 2, timeCount + stops));
+                departures = Arrays.copyOf(departures, arrivals.length);
+            }
+
+            int start = timeCount;
+            rows.moveToRow(firstRow);
+            for (int i = 0; i < stops; i++) {
+                if (i > 0) rows.next();
+
+                arrivals[start + i] = rows.arrival();
+                departures[start + i] = rows.departure();
+            }
+            timeCount += stops;
+
+            return start;
+        }
+
+        private int addRoute(StopToRouteView.Cursor pattern, int service) {
+            if (routeCount + 2 > routeStopStarts.length) {
+                routeStopStarts = Arrays.copyOf(routeStopStarts, routeStopStarts.length * 2);
+                routeTripStarts = Arrays.copyOf(routeTripStarts, routeStopStarts.length);
+                routeServices = Arrays.copyOf(routeServices, routeStopStarts.length);
+            }
+
+            int stopStart = routeStopStarts[routeCount];
+            int stops = pattern.stopCount();
+            if (stopStart + stops > routeStops.length) {
+                routeStops = Arrays.copyOf(routeStops, Math.max(routeStops.length * 2, stopStart + stops));
+            }
+            for (int i = 0; i < stops; i++) {
+                routeStops[stopStart + i] = pattern.stopId(i);
+            }
+
+            // trips are only added to the last routes, so the ones before them are already complete
+            int tripStart = routeTripStarts[routeCount];
+            routeServices[routeCount] = service;
+            routeStopStarts[routeCount + 1] = stopStart + stops;
+            routeTripStarts[routeCount + 1] = tripStart;
+
+            return routeCount++;
+        }
+
+        private void addTrip(int route, int tripId, int timeStart) {
+            int end = routeTripStarts[routeCount];
+            if (end == tripIds.length) {
+                tripIds = Arrays.copyOf(tripIds, end * 2);
+                tripTimeStarts = Arrays.copyOf(tripTimeStarts, end * 2);
+            }
+
+            // make room at the end of the route, shifting the trips of the routes after it
+            int at = routeTripStarts[route + 1];
+            System.arraycopy(tripIds, at, tripIds, at + 1, end - at);
+            System.arraycopy(tripTimeStarts, at, tripTimeStarts, at + 1, end - at);
+            for (int r = route + 1; r <= routeCount; r++) {
+                routeTripStarts[r]++;
+            }
+
+            tripIds[at] = tripId;
+            tripTimeStarts[at] = timeStart;
+        }
+
+        /**
+         * @param footpaths null if the container has none
+         */
+        private void addWalks(TransfersView transfers, FootpathsView footpaths) {
+            changeTimes = new int[stopCount];
+            LongStream.Builder walks = LongStream.builder();
+
+            for (int i = 0; i < transfers.size(); i++) {
+                int type = transfers.transferType(i);
+                if (type != TYPE_MIN_TIME && type != TYPE_NOT_POSSIBLE) continue;
+
+                int from = transfers.fromStopId(i);
+                int to = transfers.toStopId(i);
+                boolean possible = type == TYPE_MIN_TIME;
+                int minutes = (transfers.minTransferTime(i) + 59) / 60;
+
+                if (from != to) {
+                    walks.add(walk(from, to, false, possible ? minutes : NOT_POSSIBLE));
+                } else if (possible) {
+                    changeTimes[from] = Math.max(changeTimes[from], minutes);
+                }
+            }
+
+            if (footpaths != null) {
+                for (int post = 0; post < footpaths.postCount(); post++) {
+                    int from = footpaths.stopId(post);
+
+                    for (int j = footpaths.firstFootpath(post); j < footpaths.endFootpath(post); j++) {
+                        int to = footpaths.stopId(footpaths.target(j));
+                        if (from != to) walks.add(walk(from, to, true, (footpaths.walkingSeconds(j) + 59) / 60));
+                    }
+                }
+            }
+
+            long[] sorted = walks.build().sorted().toArray();
+
+            transferStarts = new int[stopCount + 1];
+            int[] stops = new int[sorted.length];
+            int[] times = new int[sorted.length];
+            int count = 0;
+
+            // only the first walk between two stops is taken, see walk()
+            long previousPair = -1;
+            for (long walk : sorted) {
+                long pair = walk >>> 17;
+                if (pair == previousPair) continue;
+                previousPair = pair;
+
+                int minutes = (int) (walk & 0xFFFF);
+                if (minutes == NOT_POSSIBLE) continue;
+
+                transferStarts[(int) (walk >>> 33) + 1]++;
+                stops[count] = (int) (pair & 0xFFFF);
+                times[count++] = minutes;
+            }
+            for (int stop = 0; stop < stopCount; stop++) {
+                transferStarts[stop + 1] += transferStarts[stop];
+            }
+
+            transferStops = Arrays.copyOf(stops, count);
+            transferTimes = Arrays.copyOf(times, count);
+        }
+
+        /**
+         * Sorting the walks puts the ones between the same two stops together, the transfers before the footpaths as
+         * the agency knows better and the shorter ones first.
+         */
+        private static long walk(int from, int to, boolean footpath, int minutes) {
+            return (long) from << 33 | (long) to << 17 | (footpath ? 1L : 0L) << 16 | Math.min(minutes, NOT_POSSIBLE);
+        }
+
+        /**
+         * @return the starts, routes and stop indices of the routes passing every stop
+         */
+        private int[][] stopIndex(int[] routeStopStarts, int[] routeStops) {
+            int[] starts = new int[stopCount + 1];
+            for (int i = 0; i < routeStopStarts[routeCount]; i++) {
+                starts[routeStops[i] + 1]++;
+            }
+            for (int stop = 0; stop < stopCount; stop++) {
+                starts[stop + 1] += starts[stop];
+            }
+
+            int[] routes = new int[starts[stopCount]];
+            int[] indices = new int[routes.length];
+            int[] next = Arrays.copyOf(starts, stopCount);
+
+            for (int route = 0; route < routeCount; route++) {
+                for (int i = routeStopStarts[route]; i < routeStopStarts[route + 1]; i++) {
+                    int at = next[routeStops[i]]++;
+                    routes[at] = route;
+                    indices[at] = i - routeStopStarts[route];
+                }
+            }
+
+            return new int[][]{starts, routes, indices};
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package io.github.mirancz.gtfsparser.reader.routing;
+
+import io.github.mirancz.gtfsparser.reader.TravelTimesView;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Travel times from every stop to every other one, one {@link Raptor} search from every origin to all the stops.
+ * <p>
+ * The origins are split among the workers of a fork join pool, each worker thread keeps its own {@link Raptor} for
+ * the life of the instance, so the labels are reused across origins and reference times. Instances are thread safe.
+ */
+public final class TravelTimeMatrix {
+
+    /**
+     * origins searched by a single task
+     */
+    private static final int ORIGINS_PER_TASK = 16;
+
+    private final Timetable timetable;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Raptor> raptors;
+
+    public TravelTimeMatrix(Timetable timetable, int maxTransfers) {
+        this(timetable, maxTransfers, ForkJoinPool.commonPool());
+    }
+
+    public TravelTimeMatrix(Timetable timetable, int maxTransfers, ForkJoinPool pool) {
+        this.timetable = timetable;
+        this.pool = pool;
+        this.raptors = ThreadLocal.withInitial(() -> new Raptor(timetable, maxTransfers));
+    }
+
+    /**
+     * @param stopCount the size of the matrix, stops past the ones of the timetable are never reached
+     * @param day       index of the day of the calendar
+     * @param time      minutes since the start of the service day
+     * @return the {@link TravelTimesView#quantize quantized} travel times, row by row from every origin
+     */
+    public byte[] compute(int stopCount, int day, int time) {
+        byte[] matrix = new byte[Math.multiplyExact(stopCount, stopCount)];
+        pool.invoke(new Origins(matrix, stopCount, day, time, 0, stopCount));
+        return matrix;
+    }
+
+    private final class Origins extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] matrix;
+        private final int stopCount;
+        private final int day;
+        private final int time;
+
+        private final int first;
+        private final int end;
+
+        private Origins(byte[] matrix, int stopCount, int day, int time, int first, int end) {
+            this.matrix = matrix;
+            this.stopCount = stopCount;
+            this.day = day;
+            this.time = time;
+            this.first = first;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - first > ORIGINS_PER_TASK) {
+                int mid = (first + end) >>> 1;
+                invokeAll(
+                        new Origins(matrix, stopCount, day, time, first, mid),
+                        new Origins(matrix, stopCount, day, time, mid, end)
+                );
+                return;
+            }
+
+            Raptor raptor = raptors.get();
+            int searched = timetable.stopCount();
+
+            for (int origin = first; origin < end; origin++) {
+                int row = origin * stopCount;
+
+                if (origin >= searched) {
+                    for (int stop = 0; stop < stopCount; stop++) {
+                        matrix[row + stop] = (byte) TravelTimesView.quantize(stop == origin ? 0 : -1);
+                    }
+                    continue;
+                }
+
+                raptor.search(origin, day, time);
+                for (int stop = 0; stop < stopCount; stop++) {
+                    int arrival = stop < searched ? raptor.arrival(stop) : -1;
+                    matrix[row + stop] = (byte) TravelTimesView.quantize(arrival == -1 ? -1 : arrival - time);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package io.github.mirancz.gtfsparser.parsing;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per row of {@code stop_times.txt} read through the columns bound once, as {@link TripParser} does, and through
+ * the {@link Csv.CsvLine}s the parsers used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    private byte[] stopTimes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        StringBuilder csv = new StringBuilder("﻿trip_id,arrival_time,departure_time,stop_id,stop_sequence,pickup_type,drop_off_type\r\n");
+
+        int trip = 1;
+        int time = 5 * 3600;
+        for (int row = 0, sequence = 1; row < ROWS; row++, sequence++) {
+            if (random.nextInt(20) == 0) {
+                trip++;
+                sequence = 1;
+                time = 5 * 3600 + random.nextInt(18 * 3600);
+            }
+            time += 60 + random.nextInt(180);
+            String clock = time / 3600 + ":" + two(time / 60 % 60) + ":" + two(time % 60);
+
+            csv.append(trip).append(',').append(clock).append(',').append(clock)
+                    .append(",U").append(1000 + random.nextInt(1500)).append('Z').append(1 + random.nextInt(4))
+                    .append(',').append(sequence).append(",0,").append(random.nextInt(4) == 0 ? "3" : "0").append("\r\n");
+        }
+
+        stopTimes = csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String two(int value) {
+        return value < 10 ? "0" + value : String.valueOf(value);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void columns(Blackhole blackhole) throws IOException {
+        Csv csv = Csv.parse(new ByteArrayInputStream(stopTimes));
+
+        Csv.IntColumn tripId = csv.intColumn("trip_id");
+        Csv.StringColumn stopId = csv.stringColumn("stop_id");
+        Csv.IntColumn sequence = csv.intColumn("stop_sequence");
+        Csv.TimeColumn arrival = csv.timeColumn("arrival_time");
+        Csv.TimeColumn departure = csv.timeColumn("departure_time");
+        Csv.IntColumn dropOff = csv.intColumn("drop_off_type");
+
+        while (csv.next()) {
+            blackhole.consume(tripId.getInt());
+            blackhole.consume(stopId.getString());
+            blackhole.consume(sequence.getInt());
+            blackhole.consume(arrival.getSeconds());
+            blackhole.consume(departure.getSeconds());
+            blackhole.consume(dropOff.getOrDefault(0));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void lines(Blackhole blackhole) throws IOException {
+        Iterator<Csv.CsvLine> lines = Csv.parse(new ByteArrayInputStream(stopTimes)).getLines();
+
+        while (lines.hasNext()) {
+            Csv.CsvLine line = lines.next();
+            blackhole.consume(line.getInt("trip_id"));
+            blackhole.consume(line.get("stop_id"));
+            blackhole.consume(line.getInt("stop_sequence"));
+            blackhole.consume(line.get("arrival_time"));
+            blackhole.consume(line.get("departure_time"));
+            blackhole.consume(line.getIntOrDefault("drop_off_type", 0));
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import io.github.mirancz.gtfsparser.TestFeed;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from an uncompressed container on disk to data ready for queries, through the views reading the sections in
+ * place and through the {@link RouteStops} and {@link StopToRoute} decoders copying them into arrays and records.
+ * <p>
+ * {@code views} and {@code eager} are the warm cost, run them with {@code -prof gc} for the bytes allocated per open,
+ * which for the eager decoders is what stays on the heap. The {@code cold} ones open the data once per fresh JVM,
+ * class loading included.
+ * <p>
+ * Opens the test feed, or a real container given by {@code -p container=<uncompressed container>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GtfsDataBenchmark {
+
+    @Param({""})
+    public String container;
+
+    private Path file;
+    private boolean temporary;
+
+    @Setup
+    public void setUp() throws Exception {
+        temporary = container.isEmpty();
+        if (temporary) {
+            file = Files.createTempFile("container", ".bin");
+            Files.write(file, TestFeed.container());
+        } else {
+            file = Path.of(container);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (temporary) Files.delete(file);
+    }
+
+    @Benchmark
+    public void views(Blackhole blackhole) throws IOException {
+        try (GtfsData data = GtfsData.map(file)) {
+            open(data, blackhole);
+            blackhole.consume(data.routeStops());
+            blackhole.consume(data.stopToRoute());
+        }
+    }
+
+    @Benchmark
+    public void eager(Blackhole blackhole) throws IOException {
+        try (GtfsData data = GtfsData.map(file)) {
+            open(data, blackhole);
+            blackhole.consume(RouteStops.decode(data.getSection("route_stops")));
+            blackhole.consume(StopToRoute.decode(data.getSection("stop_to_route")));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public void coldViews(Blackhole blackhole) throws IOException {
+        views(blackhole);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public void coldEager(Blackhole blackhole) throws IOException {
+        eager(blackhole);
+    }
+
+    /**
+     * The sections read the same way by both.
+     */
+    private static void open(GtfsData data, Blackhole blackhole) {
+        blackhole.consume(data.strings());
+        blackhole.consume(data.stops());
+        blackhole.consume(data.trips());
+    }
+
+}
@@ -0,0 +1,75 @@
+package io.github.mirancz.gtfsparser.reader.routing;
+
+import io.github.mirancz.gtfsparser.TestFeed;
+import io.github.mirancz.gtfsparser.reader.GtfsData;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Earliest arrival queries per second, between random stops at random times of the day.
+ * <p>
+ * Plans over the test feed, or over a real one given by {@code -p container=<uncompressed container>}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RaptorBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({""})
+    public String container;
+
+    @Param({"8"})
+    public int maxTransfers;
+
+    private Raptor raptor;
+    private int[] sources;
+    private int[] targets;
+    private int[] days;
+    private int[] times;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        GtfsData data = container.isEmpty()
+                ? GtfsData.wrap(ByteBuffer.wrap(TestFeed.container()))
+                : GtfsData.map(Path.of(container));
+        Timetable timetable = Timetable.of(data);
+        raptor = new Raptor(timetable, maxTransfers);
+
+        Random random = new Random(1);
+        sources = new int[QUERIES];
+        targets = new int[QUERIES];
+        days = new int[QUERIES];
+        times = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            sources[i] = random.nextInt(timetable.stopCount());
+            targets[i] = random.nextInt(timetable.stopCount());
+            days[i] = random.nextInt(timetable.dayCount());
+            times[i] = 300 + random.nextInt(1080);
+        }
+    }
+
+    @Benchmark
+    public int allStops() {
+        int i = next++ & (QUERIES - 1);
+        raptor.search(sources[i], days[i], times[i]);
+        return raptor.arrival(targets[i]);
+    }
+
+    @Benchmark
+    public int toTarget() {
+        int i = next++ & (QUERIES - 1);
+        raptor.search(sources[i], targets[i], days[i], times[i]);
+        return raptor.arrival(targets[i]);
+    }
+
+}
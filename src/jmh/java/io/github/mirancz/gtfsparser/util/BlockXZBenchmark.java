@@ -0,0 +1,61 @@
+package io.github.mirancz.gtfsparser.util;
+
+import io.github.mirancz.gtfsparser.TestFeed;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to compress a container with {@link BlockXZCompressor}, for the presets and block sizes to trade ratio against
+ * time. The ratio of every setting is printed with the compressor stats at the end of its trial.
+ * <p>
+ * Compresses the test feed, which only spans a few of the small default blocks, or a real container given by
+ * {@code -p container=<uncompressed container> -p blockSize=1048576,16777216}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockXZBenchmark {
+
+    @Param({""})
+    public String container;
+
+    @Param({"4096", "65536", "1048576"})
+    public int blockSize;
+
+    @Param({"1", "6"})
+    public int preset;
+
+    @Param({"4"})
+    public int threads;
+
+    private byte[] data;
+    private BlockXZCompressor compressor;
+
+    @Setup
+    public void setUp() throws Exception {
+        data = container.isEmpty() ? TestFeed.container() : Files.readAllBytes(Path.of(container));
+    }
+
+    @Benchmark
+    public long compress() throws IOException {
+        compressor = new BlockXZCompressor(blockSize, preset, threads);
+        compressor.compress(new ByteArrayInputStream(data), OutputStream.nullOutputStream());
+        return compressor.getBlocks().size();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println();
+        System.out.println(compressor.getStats());
+    }
+
+}
@@ -1,75 +1,431 @@
 package io.github.mirancz.gtfsparser;
 
 
+import io.github.mirancz.gtfsparser.delta.PatchChain;
+import io.github.mirancz.gtfsparser.delta.SectionFiles;
 import io.github.mirancz.gtfsparser.parsing.*;
+import io.github.mirancz.gtfsparser.pipeline.BoundedPipe;
+import io.github.mirancz.gtfsparser.pipeline.Stage;
+import io.github.mirancz.gtfsparser.routing.TravelTimeFile;
+import io.github.mirancz.gtfsparser.util.BlockXZCompressor;
 import io.github.mirancz.gtfsparser.util.CheckedOutputStream;
+import io.github.mirancz.gtfsparser.util.ContainerWriter;
 import io.github.mirancz.gtfsparser.util.IdStorage;
-import org.tukaani.xz.LZMA2Options;
-import org.tukaani.xz.XZOutputStream;
+import io.github.mirancz.gtfsparser.util.SpillingOutputStream;
+import io.github.mirancz.gtfsparser.util.StringTable;
+import org.tukaani.xz.XZInputStream;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.Function;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 public class Main {
 
     private static final String GTFS_URL = "https://kordis-jmk.cz/gtfs/gtfs.zip";
-    private static final List<Parser> parsers;
-
-    static {
-        parsers = List.of(new StopParser(), new LineInfoParser(), new TripParser(), new ApiParser(), new CalendarParser(), new TransfersParser());
-    }
-
+    /**
+     * Version of the data layout described by the info file, 1 had no block and section index,
+     * 2 had fixed width route_stops and stop_to_route sections, 3 had a stop_to_route entry for every trip at every stop,
+     * 4 had the strings inline instead of in the strings section, 5 had no departures section,
+     * 6 had no service_days section, 7 had no stop_grid section, 8 had no footpaths section.
+     */
+    private static final int FORMAT_VERSION = 9;
+
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int DOWNLOAD_QUEUE_CAPACITY = 64;
+    private static final int ENTRY_QUEUE_CAPACITY = 2;
+    private static final int ENTRY_PIPE_CAPACITY = 16;
+    private static final int OUTPUT_QUEUE_CAPACITY = 64;
+    private static final FeedEntry END_OF_ENTRIES = new FeedEntry(null, null, false);
+
+    /**
+     * See {@link Options#parse} for the arguments.
+     */
     public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Parsers parsers = Parsers.of(options);
+
         createDocsDir();
 
+        if (options.input() != null) {
+            try (ZipFile zip = new ZipFile(options.input().toFile())) {
+                run(localEntries(zip, parsers), List.of(), List.of(), parsers, options);
+            }
+            return;
+        }
+
         URL url = new URL(GTFS_URL);
 
         HttpURLConnection con = (HttpURLConnection) url.openConnection();
 
-        InputStream stream = con.getInputStream();
+        BoundedPipe downloaded = new BoundedPipe("download", DOWNLOAD_QUEUE_CAPACITY, CHUNK_SIZE);
+        BlockingQueue<FeedEntry> entries = new ArrayBlockingQueue<>(ENTRY_QUEUE_CAPACITY);
+        List<BoundedPipe> entryPipes = new ArrayList<>();
 
-        XZOutputStream compressedOutput = new XZOutputStream(new FileOutputStream(getDataRoot().resolve("data").toFile()), new LZMA2Options());
-        DataOutputStream output = new DataOutputStream(compressedOutput);
+        List<Stage> inputStages = List.of(
+                Stage.start("download", stage -> {
+                    try (InputStream stream = con.getInputStream(); OutputStream output = stage.counted(downloaded.sink())) {
+                        stream.transferTo(output);
+                    }
+                }, downloaded),
+                Stage.start("unzip", stage -> unzip(stage, downloaded.source(), entries, entryPipes, parsers))
+        );
 
-        Function<String, CheckedOutputStream> outputProvider = s -> {
-            return getWrappedDataOutputStream(s, output);
-        };
-        ZipInputStream zip = new ZipInputStream(stream);
+        run(entries, inputStages, List.of(List.of(downloaded), entryPipes), parsers, options);
+    }
+
+    /**
+     * @param inputPipes only read for the stats once all the stages are done
+     */
+    private static void run(BlockingQueue<FeedEntry> entries, List<Stage> inputStages, List<List<BoundedPipe>> inputPipes, Parsers parsers, Options options) throws Exception {
+        // the published data stays in place until the patch from it is written
+        Path data = getDataRoot().resolve("data");
+        Path next = getDataRoot().resolve("data.next");
 
-        ZipEntry entry;
-        while ((entry = zip.getNextEntry()) != null) {
-            String name = entry.getName();
-            BufferedInputStream bif = new BufferedInputStream(zip);
-            bif.mark(Integer.MAX_VALUE);
+        BoundedPipe parsed = new BoundedPipe("parse", OUTPUT_QUEUE_CAPACITY, CHUNK_SIZE);
 
-            for (Parser parser : parsers) {
-                parser.onFile(name, bif, outputProvider);
-                bif.reset();
+        ContainerWriter container = new ContainerWriter(parsed.sink(), options.sectionBufferSize());
+
+        List<Stage> stages = new ArrayList<>(inputStages);
+        stages.add(Stage.start("parse", stage -> parse(stage, entries, container, parsers, options), parsed));
+        BlockXZCompressor compressor = new BlockXZCompressor(options.xzBlockSize(), options.xzPreset(), options.xzThreads());
+        stages.add(Stage.start("compress", stage -> compress(compressor, stage.counted(parsed.source()), next)));
+
+        try {
+            // a failed stage fails the ones after it, but the ones before it may be left blocked on a full queue
+            for (Stage stage : stages.reversed()) {
+                stage.join();
             }
+        } catch (Exception e) {
+            // a failed run leaves the published data as it was
+            Files.deleteIfExists(next);
+            throw e;
         }
 
-        for (Parser parser : parsers) {
-            parser.onFinish(outputProvider);
+        System.out.println("Pipeline:");
+        for (Stage stage : stages) {
+            System.out.println("  " + stage.getStats());
+        }
+        for (List<BoundedPipe> pipes : inputPipes) {
+            for (BoundedPipe pipe : pipes) {
+                System.out.println("  " + pipe.getStats());
+            }
+        }
+        System.out.println("  " + parsed.getStats());
+        System.out.println("  " + compressor.getStats());
+
+        Path travelTimes = getDataRoot().resolve("travel_times");
+        Path nextTravelTimes = getDataRoot().resolve("travel_times.next");
+        // both versions are decompressed to temporary files and mapped, so neither of them is held on the heap
+        List<Path> uncompressed = new ArrayList<>();
+        try {
+            ByteBuffer current;
+            try {
+                current = mapUncompressed(next, uncompressed);
+
+                // computed before any published file is replaced, so a reference time out of the calendar fails the run
+                // with the data, patches and info of the previous one
+                if (!options.travelTimes().isEmpty()) {
+                    System.out.println("Travel times: " + TravelTimeFile.write(nextTravelTimes, current, options.travelTimes(), options.xzPreset(), options.sectionBufferSize()));
+                }
+            } catch (Exception e) {
+                Files.deleteIfExists(next);
+                Files.deleteIfExists(nextTravelTimes);
+                throw e;
+            }
+
+            PatchChain patches = PatchChain.load(getDataRoot());
+            patches.update(Files.exists(data) ? mapUncompressed(data, uncompressed) : null, current);
+            Files.move(next, data, StandardCopyOption.REPLACE_EXISTING);
+            if (!options.travelTimes().isEmpty()) {
+                Files.move(nextTravelTimes, travelTimes, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            System.out.println("Patches: " + patches.getPatches().size() + (patches.getPatches().isEmpty() ? "" : ", latest " + patches.getPatches().getLast().size() + " bytes"));
+
+            long byteSize = Files.size(data);
+            Files.writeString(getDataRoot().resolve("info"), generateInfoString(byteSize, compressor, container, PatchChain.checksum(current), patches));
+
+            if (options.splitSections()) {
+                SectionFiles.write(getDataRoot(), current, container.getSections(), options.xzPreset());
+            }
+        } finally {
+            for (Path file : uncompressed) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Decompresses the data to a temporary file and maps it.
+     *
+     * @param files the temporary file is added to, to be deleted once the mapping is no longer used
+     * @throws IOException also if the container does not fit the int offsets of its sections and patches
+     */
+    private static ByteBuffer mapUncompressed(Path data, List<Path> files) throws IOException {
+        Path file = Files.createTempFile("container", ".bin");
+        files.add(file);
+
+        try (InputStream is = new XZInputStream(new BufferedInputStream(Files.newInputStream(data)));
+             OutputStream os = Files.newOutputStream(file)) {
+            is.transferTo(os);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(data + " is " + channel.size() + " bytes uncompressed, containers and their patches are limited to 2 GiB");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
         }
+    }
+
+    /**
+     * Lists the subscribed entries of a local feed from its central directory. The entries can be opened any number
+     * of times, so they are never buffered, and they are ordered so that the files other parsers
+     * {@link Parser#getRequiredFiles() require} come before the files that need them.
+     */
+    private static BlockingQueue<FeedEntry> localEntries(ZipFile zip, Parsers parsers) {
+        List<? extends ZipEntry> subscribed = zip.stream()
+                .filter(entry -> parsers.subscribes(entry.getName()))
+                .toList();
+
+        // file -> files that have to be handled before it
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        for (ZipEntry entry : subscribed) {
+            Set<String> required = new HashSet<>();
+            for (Parser parser : parsers.of(entry.getName())) {
+                required.addAll(parser.getRequiredFiles());
+            }
+            required.remove(entry.getName());
+            dependencies.put(entry.getName(), required);
+        }
+
+        BlockingQueue<FeedEntry> result = new LinkedBlockingQueue<>();
+        Set<String> queued = new HashSet<>();
+        List<ZipEntry> remaining = new ArrayList<>(subscribed);
+
+        while (!remaining.isEmpty()) {
+            Iterator<ZipEntry> iterator = remaining.iterator();
+            boolean progress = false;
+
+            while (iterator.hasNext()) {
+                ZipEntry entry = iterator.next();
+                Set<String> required = dependencies.get(entry.getName());
+                // requirements that are not in the feed are ignored
+                if (!required.stream().allMatch(file -> queued.contains(file) || !dependencies.containsKey(file))) continue;
 
-        zip.close();
+                result.add(new FeedEntry(entry.getName(), () -> zip.getInputStream(entry), true));
+                queued.add(entry.getName());
+                iterator.remove();
+                progress = true;
+            }
+
+            if (!progress) {
+                throw new IllegalStateException("Cyclic file requirements: " + remaining);
+            }
+        }
+
+        result.add(END_OF_ENTRIES);
+        return result;
+    }
+
+    /**
+     * Inflates the subscribed entries one after another, each into its own pipe. The entry queue only lets
+     * the next entries be opened while the parse stage is still busy with the current one.
+     */
+    private static void unzip(Stage stage, InputStream input, BlockingQueue<FeedEntry> entries, List<BoundedPipe> entryPipes, Parsers parsers) throws Exception {
+        try (ZipInputStream zip = new ZipInputStream(input)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (!parsers.subscribes(name)) continue;
+
+                BoundedPipe pipe = new BoundedPipe(name, ENTRY_PIPE_CAPACITY, CHUNK_SIZE);
+                entryPipes.add(pipe);
+                entries.put(new FeedEntry(name, pipe::source, false));
+
+                try (OutputStream output = stage.counted(pipe.sink())) {
+                    zip.transferTo(output);
+                } catch (Exception e) {
+                    pipe.fail(e);
+                    throw e;
+                }
+            }
+        } finally {
+            entries.put(END_OF_ENTRIES);
+        }
+    }
+
+    private static void parse(Stage stage, BlockingQueue<FeedEntry> entries, ContainerWriter container, Parsers parsers, Options options) throws Exception {
+        Function<String, CheckedOutputStream> outputProvider = container::openSection;
+
+        if (options.concurrent()) {
+            parseConcurrently(stage, entries, container, parsers);
+        } else {
+            parseSequentially(stage, entries, outputProvider, parsers);
+        }
 
         writeStopIdMaps(outputProvider);
         writePosts(outputProvider);
+        writeStrings(outputProvider);
 
-        output.writeBoolean(false);
-        output.close();
+        container.finish();
+    }
+
+    private static void compress(BlockXZCompressor compressor, InputStream input, Path data) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(data))) {
+            compressor.compress(input, output);
+        }
+    }
+
+    private static void parseSequentially(Stage stage, BlockingQueue<FeedEntry> entries, Function<String, CheckedOutputStream> outputProvider, Parsers parsers) throws Exception {
+        FeedEntry entry;
+        while ((entry = entries.take()) != END_OF_ENTRIES) {
+            String name = entry.name();
+            List<Parser> fileParsers = parsers.of(name);
+
+            if (fileParsers.size() == 1 || entry.reopenable()) {
+                for (Parser parser : fileParsers) {
+                    try (InputStream input = stage.counted(entry.open())) {
+                        parser.onFile(name, input, outputProvider);
+                    }
+                }
+            } else {
+                // only buffer the entry when it has to be read more than once
+                byte[] data;
+                try (InputStream input = stage.counted(entry.open())) {
+                    data = input.readAllBytes();
+                }
+                for (Parser parser : fileParsers) {
+                    parser.onFile(name, new ByteArrayInputStream(data), outputProvider);
+                }
+            }
+        }
 
-        long byteSize = Files.size(getDataRoot().resolve("data"));
-        Files.writeString(getDataRoot().resolve("info"), generateInfoString(byteSize));
+        StringTable.GLOBAL.freeze();
+        for (Parser parser : parsers.all()) {
+            parser.onFinish(outputProvider);
+        }
+    }
+
+    /**
+     * Takes the entries one after another and hands each of them off to be parsed on a virtual thread.
+     * A parser only gets its files once all of its {@link Parser#getRequiredFiles() required files} were handled,
+     * and one after another in the order of the feed, so its joins run on the same file as in {@link #parseSequentially}.
+     * <p>
+     * The sections of every task are buffered and written once everything is parsed, in the order the tasks were
+     * handed off, so the container is the same as the one {@link #parseSequentially} writes whatever the thread
+     * scheduling. Every task opens (and inflates) its entry on its own, so the entries have to be reopenable.
+     */
+    private static void parseConcurrently(Stage stage, BlockingQueue<FeedEntry> entries, ContainerWriter container, Parsers parsers) throws Exception {
+        // per task, the sections in the order they were closed
+        List<List<BufferedSection>> sections = new ArrayList<>();
+        // every section buffer opened, deleted at the end even when a task fails before closing its section
+        List<SpillingOutputStream> buffers = Collections.synchronizedList(new ArrayList<>());
+
+        Map<String, CompletableFuture<Void>> handled = new HashMap<>();
+        Map<Parser, CompletableFuture<Void>> lastTasks = new HashMap<>();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+
+        try {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                FeedEntry entry;
+                while ((entry = entries.take()) != END_OF_ENTRIES) {
+                    String name = entry.name();
+                    List<Parser> fileParsers = parsers.of(name);
+                    seen.add(name);
+
+                    // Options only allows the mode with --input, whose zip entries can be reopened
+                    if (!entry.reopenable()) throw new IllegalStateException(name + " cannot be reopened");
+                    EntryOpener opener = entry.opener();
+
+                    List<CompletableFuture<Void>> fileTasks = new ArrayList<>();
+                    for (Parser parser : fileParsers) {
+                        List<BufferedSection> taskSections = Collections.synchronizedList(new ArrayList<>());
+                        sections.add(taskSections);
+                        Function<String, CheckedOutputStream> outputProvider = getBufferedSectionStream(taskSections, buffers, container);
+
+                        CompletableFuture<?>[] required = Stream.concat(
+                                parser.getRequiredFiles().stream().map(file -> handled.computeIfAbsent(file, k -> new CompletableFuture<>())),
+                                Stream.ofNullable(lastTasks.get(parser))
+                        ).toArray(CompletableFuture[]::new);
+
+                        CompletableFuture<Void> task = CompletableFuture.allOf(required).thenRunAsync(() -> {
+                            try (InputStream input = stage.counted(opener.open())) {
+                                parser.onFile(name, input, outputProvider);
+                            } catch (Exception e) {
+                                throw new CompletionException(e);
+                            }
+                        }, executor);
+                        lastTasks.put(parser, task);
+                        fileTasks.add(task);
+                    }
+
+                    CompletableFuture<Void> done = CompletableFuture.allOf(fileTasks.toArray(CompletableFuture[]::new));
+                    CompletableFuture<Void> fileHandled = handled.computeIfAbsent(name, k -> new CompletableFuture<>());
+                    done.whenComplete((v, e) -> {
+                        if (e != null) fileHandled.completeExceptionally(e);
+                        else fileHandled.complete(null);
+                    });
+                    tasks.add(done);
+                }
+
+                // files that are not in the feed will never be handled, nothing should wait for them
+                for (Map.Entry<String, CompletableFuture<Void>> file : handled.entrySet()) {
+                    if (!seen.contains(file.getKey())) file.getValue().complete(null);
+                }
+
+                CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Exception cause) throw cause;
+                throw e;
+            }
+
+            for (List<BufferedSection> taskSections : sections) {
+                for (BufferedSection section : taskSections) {
+                    container.writeSection(section.name(), section.data());
+                    section.data().delete();
+                }
+            }
+        } finally {
+            for (SpillingOutputStream buffer : buffers) {
+                buffer.delete();
+            }
+        }
+
+        // finishing runs on this thread only, so the sections go straight to the container
+        StringTable.GLOBAL.freeze();
+        for (Parser parser : parsers.all()) {
+            parser.onFinish(container::openSection);
+        }
+    }
+
+    private static Function<String, CheckedOutputStream> getBufferedSectionStream(List<BufferedSection> sections, List<SpillingOutputStream> buffers, ContainerWriter container) {
+        return s -> {
+            SpillingOutputStream os = container.newSectionBuffer();
+            buffers.add(os);
+
+            return new CheckedOutputStream(os) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    sections.add(new BufferedSection(s, os));
+                }
+            };
+        };
     }
 
     private static void createDocsDir() {
@@ -92,25 +448,10 @@ public class Main {
         os.close();
     }
 
-    private static CheckedOutputStream getWrappedDataOutputStream(String s, DataOutputStream output) {
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-
-        return new CheckedOutputStream(os) {
-            @Override
-            public void close() throws IOException {
-                byte[] data = os.toByteArray();
-
-                output.writeBoolean(true);
-
-                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
-                output.writeInt(bytes.length);
-                output.write(bytes);
-
-                output.writeInt(data.length);
-                output.write(data);
-                super.close();
-            }
-        };
+    private static void writeStrings(Function<String, CheckedOutputStream> outputProvider) throws IOException {
+        CheckedOutputStream os = outputProvider.apply("strings");
+        StringTable.GLOBAL.write(os);
+        os.close();
     }
 
     private static DataOutputStream getDataOutStream(File file) {
@@ -135,10 +476,57 @@ public class Main {
         s.close();
     }
 
-    private static String generateInfoString(long byteSize) {
+    /**
+     * Besides the size, the info lists the XZ blocks of the data and where every section starts, so a client can
+     * decompress a single section starting at its block:
+     * <pre>
+     * "blocks": [{"offset": uncompressed offset, "compressedOffset": ..., "compressedSize": ...}]
+     * "sections": [{"name": ..., "offset": uncompressed offset of the data, "length": ..., "block": index of the first block}]
+     * </pre>
+     * and the SHA-256 of the uncompressed data along with the {@link PatchChain patches} leading to it, oldest first:
+     * <pre>
+     * "checksum": ...
+     * "patches": [{"from": checksum, "to": checksum, "file": path relative to docs, "size": ...}]
+     * </pre>
+     */
+    private static String generateInfoString(long byteSize, BlockXZCompressor compressor, ContainerWriter container, String checksum, PatchChain patches) {
+        StringJoiner blocks = new StringJoiner(",", "[", "]");
+        for (BlockXZCompressor.Block block : compressor.getBlocks()) {
+            blocks.add("{" +
+                    "\"offset\":"+block.offset()+"," +
+                    "\"compressedOffset\":"+block.compressedOffset()+"," +
+                    "\"compressedSize\":"+block.compressedSize()+
+                    "}");
+        }
+
+        StringJoiner sections = new StringJoiner(",", "[", "]");
+        for (ContainerWriter.Section section : container.getSections()) {
+            sections.add("{" +
+                    "\"name\":\""+section.name()+"\"," +
+                    "\"offset\":"+section.offset()+"," +
+                    "\"length\":"+section.length()+"," +
+                    "\"block\":"+compressor.getBlockIndex(section.offset())+
+                    "}");
+        }
+
+        StringJoiner patchList = new StringJoiner(",", "[", "]");
+        for (PatchChain.Patch patch : patches.getPatches()) {
+            patchList.add("{" +
+                    "\"from\":\""+patch.from()+"\"," +
+                    "\"to\":\""+patch.to()+"\"," +
+                    "\"file\":\""+patch.file()+"\"," +
+                    "\"size\":"+patch.size()+
+                    "}");
+        }
+
         return "{" +
                 "\"lastUpdated\":"+System.currentTimeMillis()+"," +
-                "\"byteSize\":"+byteSize+
+                "\"byteSize\":"+byteSize+"," +
+                "\"formatVersion\":"+FORMAT_VERSION+"," +
+                "\"blocks\":"+blocks+"," +
+                "\"sections\":"+sections+"," +
+                "\"checksum\":\""+checksum+"\"," +
+                "\"patches\":"+patchList+
                 "}";
     }
 
@@ -150,5 +538,51 @@ public class Main {
         return getDataRoot().resolve("storage").resolve("stop_maps").toFile();
     }
 
+    /**
+     * @param reopenable whether the entry can be opened more than once (and from several threads)
+     */
+    private record FeedEntry(String name, EntryOpener opener, boolean reopenable) {
+
+        InputStream open() throws IOException {
+            return opener.open();
+        }
+    }
+
+    private record BufferedSection(String name, SpillingOutputStream data) {
+    }
+
+    /**
+     * The parsers of a run and the files they subscribe to, some of them are configured by the options.
+     */
+    private record Parsers(List<Parser> all, Map<String, List<Parser>> subscribers) {
+
+        static Parsers of(Options options) {
+            List<Parser> all = List.of(new StopParser(options.walkRadius()), new LineInfoParser(), new TripParser(), new ApiParser(), new CalendarParser(), new TransfersParser());
+
+            Map<String, List<Parser>> subscribers = new HashMap<>();
+            for (Parser parser : all) {
+                for (String file : parser.getSubscribedFiles()) {
+                    subscribers.computeIfAbsent(file, k -> new ArrayList<>()).add(parser);
+                }
+            }
+            return new Parsers(all, subscribers);
+        }
+
+        boolean subscribes(String file) {
+            return subscribers.containsKey(file);
+        }
+
+        /**
+         * @return the parsers subscribed to the file, in the order they run
+         */
+        List<Parser> of(String file) {
+            return subscribers.get(file);
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryOpener {
+        InputStream open() throws IOException;
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package io.github.mirancz.gtfsparser;
+
+import org.tukaani.xz.LZMA2Options;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command line options of {@link Main}.
+ *
+ * @param input             local copy of the feed, {@code null} to download it
+ * @param concurrent        whether to parse independent files in parallel, only with a local {@code input}
+ * @param sectionBufferSize how many bytes of a section are kept in memory before it spills to a temporary file
+ * @param xzBlockSize       uncompressed size of the independently compressed XZ blocks
+ * @param xzPreset          XZ (LZMA2) preset, 0-9
+ * @param xzThreads         number of threads compressing the blocks
+ * @param splitSections     whether every section is also written as its own file
+ * @param travelTimes       reference times of the travel time matrices, none if empty
+ * @param walkRadius        meters between two posts still connected by a footpath
+ */
+public record Options(Path input, boolean concurrent, int sectionBufferSize, int xzBlockSize, int xzPreset, int xzThreads, boolean splitSections,
+                      List<LocalDateTime> travelTimes, int walkRadius) {
+
+    private static final int DEFAULT_SECTION_BUFFER_SIZE = 4 << 20;
+    private static final int DEFAULT_XZ_BLOCK_SIZE = 16 << 20;
+    private static final int DEFAULT_XZ_PRESET = 6;
+    private static final int DEFAULT_WALK_RADIUS = 400;
+    /**
+     * the walking seconds of a footpath are kept in a short, and the footpaths grow with the square of the radius
+     */
+    private static final int MAX_WALK_RADIUS = 5000;
+
+    /**
+     * Arguments:
+     * <ul>
+     *     <li>{@code --input <file>} parse a local copy of the feed instead of downloading it</li>
+     *     <li>{@code --concurrent} parse independent files in parallel, requires {@code --input} as every parser
+     *     reopens the entries it reads, a downloaded feed would have to be held in memory</li>
+     *     <li>{@code --section-buffer <bytes>} in memory buffer of a section, 0 spills every section, defaults to 4 MiB</li>
+     *     <li>{@code --xz-block-size <bytes>} size of the XZ blocks compressed in parallel, defaults to 16 MiB</li>
+     *     <li>{@code --xz-preset <0-9>} XZ preset, defaults to 6</li>
+     *     <li>{@code --xz-threads <count>} compression threads, defaults to the number of processors</li>
+     *     <li>{@code --split-sections} also write every section as its own file with a manifest of their hashes</li>
+     *     <li>{@code --travel-times <times>} comma separated reference times ({@code 2026-01-05T07:30}) to write the
+     *     travel times between every two stops for</li>
+     *     <li>{@code --walk-radius <meters>} longest footpath between two posts, 0-5000, defaults to 400</li>
+     * </ul>
+     */
+    public static Options parse(String[] args) {
+        List<String> arguments = List.of(args);
+
+        String input = getArgument(arguments, "--input");
+        String travelTimes = getArgument(arguments, "--travel-times");
+
+        boolean concurrent = arguments.contains("--concurrent");
+        if (concurrent && input == null) {
+            throw new IllegalArgumentException("--concurrent requires --input");
+        }
+
+        return new Options(
+                input == null ? null : Path.of(input),
+                concurrent,
+                // checked here, the values are only used once the feed is downloaded and parsed
+                getIntArgument(arguments, "--section-buffer", DEFAULT_SECTION_BUFFER_SIZE, 0, Integer.MAX_VALUE),
+                getIntArgument(arguments, "--xz-block-size", DEFAULT_XZ_BLOCK_SIZE, 1, Integer.MAX_VALUE),
+                getIntArgument(arguments, "--xz-preset", DEFAULT_XZ_PRESET, LZMA2Options.PRESET_MIN, LZMA2Options.PRESET_MAX),
+                getIntArgument(arguments, "--xz-threads", Runtime.getRuntime().availableProcessors(), 1, Integer.MAX_VALUE),
+                arguments.contains("--split-sections"),
+                travelTimes == null ? List.of() : Arrays.stream(travelTimes.split(",")).map(LocalDateTime::parse).toList(),
+                getIntArgument(arguments, "--walk-radius", DEFAULT_WALK_RADIUS, 0, MAX_WALK_RADIUS)
+        );
+    }
+
+    private static int getIntArgument(List<String> arguments, String name, int defaultValue, int min, int max) {
+        int value = getIntArgument(arguments, name, defaultValue);
+        if (value < min || value > max) {
+            throw new IllegalArgumentException(name + " has to be within " + min + " and " + max + ": " + value);
+        }
+        return value;
+    }
+
+    private static int getIntArgument(List<String> arguments, String name, int defaultValue) {
+        String value = getArgument(arguments, name);
+        if (value == null) return defaultValue;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " has to be an integer: " + value, e);
+        }
+    }
+
+    private static String getArgument(List<String> arguments, String name) {
+        int index = arguments.indexOf(name);
+        if (index == -1) return null;
+
+        if (index + 1 >= arguments.size()) {
+            throw new IllegalArgumentException("Missing value for " + name);
+        }
+        return arguments.get(index + 1);
+    }
+
+}
@@ -0,0 +1,187 @@
+package io.github.mirancz.gtfsparser.delta;
+
+import io.github.mirancz.gtfsparser.reader.DataPatch;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static io.github.mirancz.gtfsparser.reader.DataPatch.MAGIC;
+import static io.github.mirancz.gtfsparser.reader.DataPatch.OP_COPY;
+import static io.github.mirancz.gtfsparser.reader.DataPatch.OP_END;
+import static io.github.mirancz.gtfsparser.reader.DataPatch.OP_INSERT;
+import static io.github.mirancz.gtfsparser.reader.DataPatch.VERSION;
+
+/**
+ * Binary delta between two versions of the data container, in the format of {@link DataPatch} which applies it.
+ * <p>
+ * Copies are found by indexing the old version in blocks of {@value #BLOCK_SIZE} bytes and looking up a rolling hash
+ * of every position of the new version, matches are then extended in both directions.
+ */
+public class Delta {
+
+    private static final int BLOCK_SIZE = 32;
+    private static final int BASE = 257;
+
+    public static byte[] diff(byte[] previous, byte[] current) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            diff(ByteBuffer.wrap(previous), ByteBuffer.wrap(current), bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Streams the patch to the output, so only the index of the previous version (a quarter of its size) is kept on
+     * the heap, the versions themselves can be mapped files.
+     *
+     * @param previous read from 0 to its limit
+     * @param current  read from 0 to its limit
+     */
+    public static void diff(ByteBuffer previous, ByteBuffer current, OutputStream output) throws IOException {
+        DataOutputStream os = new DataOutputStream(new BufferedOutputStream(output));
+
+        os.writeInt(MAGIC);
+        os.writeByte(VERSION);
+        os.writeInt(previous.limit());
+        os.write(sha256(previous));
+        os.writeInt(current.limit());
+        os.write(sha256(current));
+
+        writeOperations(os, previous, current);
+        os.flush();
+    }
+
+    private static void writeOperations(DataOutputStream os, ByteBuffer previous, ByteBuffer current) throws IOException {
+        int[] table = index(previous);
+        int mask = table.length - 1;
+        int previousLength = previous.limit();
+        int currentLength = current.limit();
+
+        int removeFactor = 1;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            removeFactor *= BASE;
+        }
+
+        int insertStart = 0;
+        int pos = 0;
+        int hash = currentLength >= BLOCK_SIZE ? hash(current, 0) : 0;
+
+        while (pos + BLOCK_SIZE <= currentLength) {
+            int candidate = table[mix(hash) & mask] - 1;
+
+            if (candidate >= 0 && blockEquals(previous, candidate, current, pos)) {
+                int length = BLOCK_SIZE;
+                while (pos + length < currentLength && candidate + length < previousLength
+                        && previous.get(candidate + length) == current.get(pos + length)) {
+                    length++;
+                }
+
+                while (pos > insertStart && candidate > 0 && previous.get(candidate - 1) == current.get(pos - 1)) {
+                    pos--;
+                    candidate--;
+                    length++;
+                }
+
+                writeInsert(os, current, insertStart, pos);
+
+                os.writeByte(OP_COPY);
+                os.writeInt(candidate);
+                os.writeInt(length);
+
+                pos += length;
+                insertStart = pos;
+
+                if (pos + BLOCK_SIZE <= currentLength) {
+                    hash = hash(current, pos);
+                }
+                continue;
+            }
+
+            if (pos + BLOCK_SIZE < currentLength) {
+                hash = hash * BASE + (current.get(pos + BLOCK_SIZE) & 0xFF) - removeFactor * (current.get(pos) & 0xFF);
+            }
+            pos++;
+        }
+
+        writeInsert(os, current, insertStart, currentLength);
+        os.writeByte(OP_END);
+    }
+
+    private static boolean blockEquals(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if (a.get(aOffset + i) != b.get(bOffset + i)) return false;
+        }
+        return true;
+    }
+
+    private static void writeInsert(DataOutputStream os, ByteBuffer data, int from, int to) throws IOException {
+        if (from == to) return;
+
+        os.writeByte(OP_INSERT);
+        os.writeInt(to - from);
+        write(os, data, from, to);
+    }
+
+    /**
+     * Writes a range of the buffer without changing its position.
+     */
+    static void write(OutputStream os, ByteBuffer data, int from, int to) throws IOException {
+        byte[] chunk = new byte[Math.min(to - from, 1 << 16)];
+        for (int pos = from; pos < to; pos += chunk.length) {
+            int length = Math.min(chunk.length, to - pos);
+            data.get(pos, chunk, 0, length);
+            os.write(chunk, 0, length);
+        }
+    }
+
+    /**
+     * @return direct mapped table of {@code offset + 1} of the blocks of the data, 0 for an empty slot
+     */
+    private static int[] index(ByteBuffer data) {
+        int blocks = data.limit() / BLOCK_SIZE;
+        int[] table = new int[Integer.highestOneBit(Math.max(16, blocks * 2) - 1) << 1];
+        int mask = table.length - 1;
+
+        // going backwards so the first occurrence of a block wins
+        for (int offset = (blocks - 1) * BLOCK_SIZE; offset >= 0; offset -= BLOCK_SIZE) {
+            table[mix(hash(data, offset)) & mask] = offset + 1;
+        }
+        return table;
+    }
+
+    private static int hash(ByteBuffer data, int offset) {
+        int hash = 0;
+        for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+            hash = hash * BASE + (data.get(i) & 0xFF);
+        }
+        return hash;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+
+    /**
+     * @param data hashed from its position to its limit, which are left as they are
+     */
+    public static byte[] sha256(ByteBuffer data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data.duplicate());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
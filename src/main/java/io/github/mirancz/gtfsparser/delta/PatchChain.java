@@ -0,0 +1,143 @@
+package io.github.mirancz.gtfsparser.delta;
+
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Patches leading from older versions of the data container to the current one, oldest first.
+ * <p>
+ * Every patch is written XZ compressed to {@code patches/} and the chain is kept in {@code storage/patches},
+ * one {@code from to file size} line per patch, the versions being the SHA-256 of the uncompressed container.
+ * A client holding any version in the chain applies the patches from it onwards instead of downloading the data.
+ */
+public class PatchChain {
+
+    /**
+     * Older patches are dropped, clients that far behind download the whole data.
+     */
+    private static final int MAX_PATCHES = 30;
+
+    private final Path root;
+    private final List<Patch> patches;
+
+    private PatchChain(Path root, List<Patch> patches) {
+        this.root = root;
+        this.patches = patches;
+    }
+
+    public static PatchChain load(Path root) throws IOException {
+        Path file = getChainFile(root);
+        List<Patch> patches = new ArrayList<>();
+
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file)) {
+                if (line.isBlank()) continue;
+
+                String[] parts = line.split(" ");
+                patches.add(new Patch(parts[0], parts[1], parts[2], Long.parseLong(parts[3])));
+            }
+        }
+
+        return new PatchChain(root, patches);
+    }
+
+    /**
+     * Appends the patch from the previous to the current version. If the chain does not end at the previous version
+     * (or there is none) the patches already in it cannot lead to the current one, so they are dropped.
+     *
+     * @param previous uncompressed container of the last release, null if there is none
+     */
+    public void update(ByteBuffer previous, ByteBuffer current) throws IOException {
+        String currentHash = checksum(current);
+
+        if (previous == null) {
+            truncate(patches.size());
+        } else {
+            String previousHash = checksum(previous);
+
+            if (!patches.isEmpty() && !patches.getLast().to().equals(previousHash)) {
+                truncate(patches.size());
+            }
+
+            if (!previousHash.equals(currentHash)) {
+                patches.add(writePatch(previousHash, currentHash, previous, current));
+            }
+        }
+
+        if (patches.size() > MAX_PATCHES) {
+            truncate(patches.size() - MAX_PATCHES);
+        }
+
+        save();
+    }
+
+    private Patch writePatch(String from, String to, ByteBuffer previous, ByteBuffer current) throws IOException {
+        String name = from.substring(0, 16) + "-" + to.substring(0, 16);
+        Path file = root.resolve("patches").resolve(name);
+        Files.createDirectories(file.getParent());
+
+        try (OutputStream os = new XZOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), new LZMA2Options())) {
+            Delta.diff(previous, current, os);
+        }
+
+        return new Patch(from, to, "patches/" + name, Files.size(file));
+    }
+
+    /**
+     * Removes the oldest patches along with their files.
+     */
+    private void truncate(int count) throws IOException {
+        List<Patch> removed = patches.subList(0, count);
+        for (Patch patch : removed) {
+            Files.deleteIfExists(root.resolve(patch.file()));
+        }
+        removed.clear();
+    }
+
+    private void save() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (Patch patch : patches) {
+            builder.append(patch.from()).append(' ')
+                    .append(patch.to()).append(' ')
+                    .append(patch.file()).append(' ')
+                    .append(patch.size()).append('\n');
+        }
+
+        // the directory is published even while it is empty
+        Files.createDirectories(root.resolve("patches"));
+
+        Path file = getChainFile(root);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, builder);
+    }
+
+    public List<Patch> getPatches() {
+        return patches;
+    }
+
+    public static String checksum(ByteBuffer container) {
+        return HexFormat.of().formatHex(Delta.sha256(container));
+    }
+
+    private static Path getChainFile(Path root) {
+        return root.resolve("storage").resolve("patches");
+    }
+
+    /**
+     * @param from checksum of the version the patch applies to
+     * @param to   checksum of the version it produces
+     * @param file path relative to the data root
+     * @param size compressed size of the patch
+     */
+    public record Patch(String from, String to, String file, long size) {
+    }
+
+}
@@ -0,0 +1,74 @@
+package io.github.mirancz.gtfsparser.delta;
+
+import io.github.mirancz.gtfsparser.util.ContainerWriter;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Writes every section of the container as its own XZ file to {@code sections/} along with a manifest:
+ * <pre>
+ * {"checksum": SHA-256 of the whole container,
+ *  "sections": [{"name": ..., "file": path relative to the data root, "hash": SHA-256 of the section, "size": ..., "compressedSize": ...}]}
+ * </pre>
+ * A client compares the hashes with the ones of its previous manifest and fetches only the sections that changed.
+ * XZ output only depends on the input and the preset, so the file of an unchanged section stays byte identical.
+ */
+public class SectionFiles {
+
+    private static final String DIRECTORY = "sections";
+    private static final String EXTENSION = ".xz";
+
+    public static void write(Path root, ByteBuffer container, List<ContainerWriter.Section> sections, int preset) throws IOException {
+        Path dir = root.resolve(DIRECTORY);
+        Files.createDirectories(dir);
+
+        StringJoiner entries = new StringJoiner(",", "[", "]");
+        Set<String> files = new HashSet<>();
+
+        for (ContainerWriter.Section section : sections) {
+            int from = Math.toIntExact(section.offset());
+            int to = from + Math.toIntExact(section.length());
+
+            String name = section.name() + EXTENSION;
+            Path file = dir.resolve(name);
+            try (OutputStream os = new XZOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), new LZMA2Options(preset))) {
+                Delta.write(os, container, from, to);
+            }
+            files.add(name);
+
+            entries.add("{" +
+                    "\"name\":\""+section.name()+"\"," +
+                    "\"file\":\""+DIRECTORY+"/"+name+"\"," +
+                    "\"hash\":\""+HexFormat.of().formatHex(Delta.sha256(container.slice(from, to - from)))+"\"," +
+                    "\"size\":"+(to - from)+"," +
+                    "\"compressedSize\":"+Files.size(file)+
+                    "}");
+        }
+
+        // sections that are no longer written
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                if (!files.contains(file.getFileName().toString())) Files.delete(file);
+            }
+        }
+
+        Files.writeString(dir.resolve("manifest"), "{" +
+                "\"checksum\":\""+PatchChain.checksum(container)+"\"," +
+                "\"sections\":"+entries+
+                "}");
+    }
+
+}
@@ -3,11 +3,18 @@ package io.github.mirancz.gtfsparser.parsing;
 import io.github.mirancz.gtfsparser.util.CheckedOutputStream;
 
 import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
 
 public class CalendarParser extends Parser {
 
+    // each only touched by the thread parsing its file
+    private final List<Service> services = new ArrayList<>();
+    private final List<ServiceException> exceptions = new ArrayList<>();
 
     public CalendarParser() {
         subscribeTransformer("calendar.txt", "calendar", this::parseAndWriteCalendar);
@@ -17,21 +24,19 @@ public class CalendarParser extends Parser {
     protected void parseAndWriteDates(InputStream input, CheckedOutputStream output) throws Exception {
         Csv entries = Csv.parse(input);
 
-        Iterator<Csv.CsvLine> lines = entries.getLines();
+        Csv.IntColumn serviceIdColumn = entries.intColumn("service_id");
+        Csv.DateColumn dateColumn = entries.dateColumn("date");
+        Csv.IntColumn typeColumn = entries.intColumn("exception_type");
 
 
-        while (lines.hasNext()) {
+        while (entries.next()) {
             output.writeBoolean(true);
-            Csv.CsvLine line = lines.next();
 
-            int serviceId = line.getInt("service_id");
-            String date = line.get("date");
+            output.writeShort(serviceIdColumn.getInt());
+            output.writeInt(dateColumn.getDate());
+            output.writeByte(typeColumn.getInt());
 
-            int type = line.getInt("exception_type");
-
-            output.writeShort(serviceId);
-            output.writeInt(parseDate(date));
-            output.writeByte(type);
+            exceptions.add(new ServiceException(serviceIdColumn.getInt(), dateColumn.getDate(), typeColumn.getInt()));
         }
 
         output.writeBoolean(false);
@@ -40,51 +45,149 @@ public class CalendarParser extends Parser {
     protected void parseAndWriteCalendar(InputStream input, CheckedOutputStream output) throws Exception {
         Csv entries = Csv.parse(input);
 
-        Iterator<Csv.CsvLine> lines = entries.getLines();
-
-
-        while (lines.hasNext()) {
-            output.writeBoolean(true);
-            Csv.CsvLine line = lines.next();
+        Csv.IntColumn serviceIdColumn = entries.intColumn("service_id");
+        Csv.DateColumn startDateColumn = entries.dateColumn("start_date");
+        Csv.DateColumn endDateColumn = entries.dateColumn("end_date");
 
-            int serviceId = line.getInt("service_id");
+        Csv.BooleanColumn[] dayColumns = {
+                entries.booleanColumn("monday"),
+                entries.booleanColumn("tuesday"),
+                entries.booleanColumn("wednesday"),
+                entries.booleanColumn("thursday"),
+                entries.booleanColumn("friday"),
+                entries.booleanColumn("saturday"),
+                entries.booleanColumn("sunday")
+        };
 
-            String startDate = line.get("start_date");
-            String endDate = line.get("end_date");
 
-            boolean monday = line.getBoolean("monday");
-            boolean tuesday = line.getBoolean("tuesday");
-            boolean wednesday = line.getBoolean("wednesday");
-            boolean thursday = line.getBoolean("thursday");
-            boolean friday = line.getBoolean("friday");
-            boolean saturday = line.getBoolean("saturday");
-            boolean sunday = line.getBoolean("sunday");
+        while (entries.next()) {
+            output.writeBoolean(true);
 
             byte data = 0;
-            if (monday)    data |= 1 << 0;
-            if (tuesday)   data |= 1 << 1;
-            if (wednesday) data |= 1 << 2;
-            if (thursday)  data |= 1 << 3;
-            if (friday)    data |= 1 << 4;
-            if (saturday)  data |= 1 << 5;
-            if (sunday)    data |= 1 << 6;
-
-            output.writeShort(serviceId);
-            output.writeInt(parseDate(startDate));
-            output.writeInt(parseDate(endDate));
+            for (int day = 0; day < dayColumns.length; day++) {
+                if (dayColumns[day].getBoolean()) data |= (byte) (1 << day);
+            }
+
+            output.writeShort(serviceIdColumn.getInt());
+            output.writeInt(startDateColumn.getDate());
+            output.writeInt(endDateColumn.getDate());
             output.writeByte(data);
+
+            services.add(new Service(serviceIdColumn.getInt(), startDateColumn.getDate(), endDateColumn.getDate(), data));
         }
 
         output.writeBoolean(false);
     }
 
-    private static int parseDate(String date) {
-        int day = Integer.parseInt(date.substring(date.length()-2));
-        int month = Integer.parseInt(date.substring(date.length()-4, date.length()-2));
+    /**
+     * Runs after both calendar files, either of which may be missing from the feed.
+     */
+    @Override
+    protected void onFinishInternal(Function<String, CheckedOutputStream> outputProvider) throws Exception {
+        writeServiceDays(outputProvider.apply("service_days"));
+    }
+
+    /**
+     * Writes on which days every service runs, with the calendar_dates exceptions applied, over the days from the
+     * first to the last date of the calendar files:
+     * <pre>
+     * int first date, int day count
+     * int service count
+     * per service, sorted by id: short service id, (day count + 63) / 64 longs, bit i of the bitset is day i
+     * day count + 1 ints, the start of the services of every day in the list below
+     * short ids of the services running on every day
+     * </pre>
+     * Dates are packed as {@code year << 16 | month << 8 | day}.
+     */
+    private void writeServiceDays(CheckedOutputStream os) throws IOException {
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (Service service : services) {
+            first = Math.min(first, service.startDate());
+            last = Math.max(last, service.endDate());
+        }
+        for (ServiceException exception : exceptions) {
+            first = Math.min(first, exception.date());
+            last = Math.max(last, exception.date());
+        }
+
+        if (first > last) {
+            os.writeInt(0);
+            os.writeInt(0);
+            os.writeInt(0);
+            os.writeInt(0);
+            return;
+        }
+
+        LocalDate firstDate = toLocalDate(first);
+        int dayCount = dayIndex(firstDate, last) + 1;
+        int words = (dayCount + 63) / 64;
+
+        SortedMap<Integer, long[]> bitsets = new TreeMap<>();
+        for (Service service : services) {
+            long[] bits = bitsets.computeIfAbsent(service.id(), k -> new long[words]);
+
+            LocalDate date = toLocalDate(service.startDate());
+            int end = dayIndex(firstDate, service.endDate());
+            for (int day = dayIndex(firstDate, service.startDate()); day <= end; day++, date = date.plusDays(1)) {
+                if ((service.days() & (1 << (date.getDayOfWeek().getValue() - 1))) != 0) {
+                    bits[day >>> 6] |= 1L << day;
+                }
+            }
+        }
+        for (ServiceException exception : exceptions) {
+            long[] bits = bitsets.computeIfAbsent(exception.serviceId(), k -> new long[words]);
+
+            int day = dayIndex(firstDate, exception.date());
+            if (exception.type() == 1) bits[day >>> 6] |= 1L << day;
+            else if (exception.type() == 2) bits[day >>> 6] &= ~(1L << day);
+        }
+
+        os.writeInt(first);
+        os.writeInt(dayCount);
+
+        os.writeInt(bitsets.size());
+        for (Map.Entry<Integer, long[]> entry : bitsets.entrySet()) {
+            os.writeShort(entry.getKey());
+            for (long word : entry.getValue()) {
+                os.writeLong(word);
+            }
+        }
+
+        int offset = 0;
+        for (int day = 0; day < dayCount; day++) {
+            os.writeInt(offset);
+            for (long[] bits : bitsets.values()) {
+                if ((bits[day >>> 6] & 1L << day) != 0) offset++;
+            }
+        }
+        os.writeInt(offset);
+
+        for (int day = 0; day < dayCount; day++) {
+            for (Map.Entry<Integer, long[]> entry : bitsets.entrySet()) {
+                if ((entry.getValue()[day >>> 6] & 1L << day) != 0) os.writeShort(entry.getKey());
+            }
+        }
+    }
+
+    private static LocalDate toLocalDate(int date) {
+        return LocalDate.of(date >>> 16, (date >>> 8) & 0xFF, date & 0xFF);
+    }
 
-        int year = Integer.parseInt(date.substring(0, 4));
+    private static int dayIndex(LocalDate first, int date) {
+        return Math.toIntExact(ChronoUnit.DAYS.between(first, toLocalDate(date)));
+    }
+
+    /**
+     * @param days bit 0 set if the service runs on mondays up to bit 6 for sundays
+     */
+    private record Service(int id, int startDate, int endDate, byte days) {
+    }
 
-        return (year << 16) | (month<<8) | day;
+    /**
+     * @param type 1 if the service was added on the date, 2 if it was removed
+     */
+    private record ServiceException(int serviceId, int date, int type) {
     }
 
 }
@@ -1,82 +1,642 @@
 package io.github.mirancz.gtfsparser.parsing;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.Function;
 
+/**
+ * Byte level CSV tokenizer.
+ * <p>
+ * Rows are read straight from the input stream into a reusable buffer and the fields of the current row are kept
+ * as {@code [start, end)} slices of that buffer. The typed accessors ({@link #getInt(int)}, {@link #getDouble(int)},
+ * {@link #getDate(int)}, ...) parse the bytes in place, so iterating with {@link #next()} does not allocate per row.
+ * The slices are only valid until the next call to {@link #next()}.
+ * <p>
+ * Parsers should bind the columns they need once after parsing the header ({@link #intColumn(String)}, ...) and
+ * read them for every row. {@link #getLines()} is kept for parsers that still work with {@link CsvLine}s.
+ */
 public class Csv {
 
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long INVALID = Long.MIN_VALUE;
+
+    // states of a row scanned by findRowEnd
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    public static Csv parse(InputStream inputStream) throws IOException {
+        Csv csv = new Csv(inputStream);
+
+        // a single read may return less than the whole mark
+        while (csv.limit < 3 && !csv.eof) {
+            csv.fill();
+        }
+        if (csv.limit >= 3 && csv.buffer[0] == (byte) 0xEF && csv.buffer[1] == (byte) 0xBB && csv.buffer[2] == (byte) 0xBF) {
+            csv.position = 3;
+        }
+
+        if (csv.next()) {
+            for (int i = 0; i < csv.fieldCount; i++) {
+                csv.descriptorMap.put(csv.getString(i), i);
+            }
+        }
+
+        return csv;
+    }
+
+
+    private final Map<String, Integer> descriptorMap = new HashMap<>();
+    private final InputStream input;
 
+    private byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+
+    private Csv(InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * @return index of the column with the given header name, or {@code -1} if there is no such column
+     */
+    public int columnIndex(String name) {
+        return descriptorMap.getOrDefault(name, -1);
+    }
+
+    /**
+     * Advances to the next non-empty row.
+     *
+     * @return false if the end of the input was reached
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int rowEnd = findRowEnd();
+            if (rowEnd == -1) {
+                fieldCount = 0;
+                return false;
+            }
+
+            int start = position;
+            int end = rowEnd;
+            position = rowEnd < limit ? rowEnd + 1 : rowEnd;
+
+            if (end > start && buffer[end - 1] == '\r') end--;
+            if (end == start) continue;
+
+            tokenize(start, end);
+            return true;
+        }
+    }
+
+    /**
+     * Finds the end of the row starting at {@link #position}, reading more data if needed.
+     * A newline inside of a quoted field does not end the row. A field is only quoted if it starts with a quote, a quote
+     * anywhere else is kept as it is, and {@code ""} inside of a quoted field is an escaped quote.
+     *
+     * @return index of the terminating newline, {@link #limit} for the last unterminated row or {@code -1} at the end of the input
+     */
+    private int findRowEnd() throws IOException {
+        int scan = position;
+        int state = FIELD_START;
+
+        while (true) {
+            byte[] buf = buffer;
+            for (; scan < limit; scan++) {
+                byte b = buf[scan];
+                if (state == QUOTED) {
+                    if (b == '"') state = QUOTE_IN_QUOTED;
+                } else if (b == '\n') {
+                    return scan;
+                } else if (b == ',') {
+                    state = FIELD_START;
+                } else if (b == '"') {
+                    // opens a field, or is escaped right after the closing quote, anywhere else it is kept as it is
+                    if (state != UNQUOTED) state = QUOTED;
+                } else {
+                    state = UNQUOTED;
+                }
+            }
 
-    private static final char UTF8_BOM = '\uFEFF';
+            if (eof) {
+                return position == limit ? -1 : limit;
+            }
 
-    public static Csv parse(InputStream inputStream) {
-        Scanner scanner = new Scanner(inputStream);
+            int offset = position;
+            fill();
+            scan -= offset - position;
+        }
+    }
 
-        String header = scanner.nextLine();
-        if (!header.isEmpty() && header.charAt(0) == UTF8_BOM) {
-            header = header.substring(1);
+    /**
+     * Moves the unread data to the start of the buffer, growing it if it is full, and reads more input.
+     */
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        } else if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
         }
 
-        return new Csv(parseCsvLine(header), scanner);
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+            eof = true;
+        } else {
+            limit += read;
+        }
     }
 
-    private static List<String> parseCsvLine(String line) {
-        List<String> result = new ArrayList<>();
+    private void tokenize(int start, int end) {
+        fieldCount = 0;
+
+        int p = start;
+        while (true) {
+            if (p < end && buffer[p] == '"') {
+                int closing = unquote(p + 1, end);
 
-        while (!line.isEmpty()) {
-            int nextDelim = line.indexOf(",");
-            int nextQuote = line.indexOf("\"");
-            if (nextQuote < nextDelim && nextQuote != -1) {
-                int endQuote = line.indexOf("\"", nextQuote+1);
+                int delim = indexOf(',', closing, end);
+                if (delim == end) break;
+                p = delim + 1;
+                continue;
+            }
+
+            int delim = indexOf(',', p, end);
+            addField(p, delim);
+            if (delim == end) break;
+            p = delim + 1;
+        }
+    }
 
-                result.add(line.substring(1, endQuote));
-                line = line.substring(endQuote+1);
-                if (line.startsWith(",")) {
-                    line = line.substring(1);
+    /**
+     * Adds the quoted field starting at {@code from}, replacing its escaped quotes in place.
+     *
+     * @return index of the closing quote, {@code end} if there is none
+     */
+    private int unquote(int from, int end) {
+        byte[] buf = buffer;
+        int write = from;
+        int read = from;
+        while (read < end) {
+            if (buf[read] == '"') {
+                if (read + 1 < end && buf[read + 1] == '"') {
+                    read++;
+                } else {
+                    break;
                 }
+            }
+            buf[write++] = buf[read++];
+        }
+
+        addField(from, write);
+        return read;
+    }
+
+    private int indexOf(char c, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer[i] == c) return i;
+        }
+        return end;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return true if the current row has a value for the column, false if the column is missing or the value is empty
+     */
+    public boolean isPresent(int column) {
+        return column >= 0 && column < fieldCount && fieldStarts[column] != fieldEnds[column];
+    }
+
+    /**
+     * @return the value of the column or {@code null} if the row does not have the column
+     */
+    public String getString(int column) {
+        if (column < 0 || column >= fieldCount) return null;
+
+        int start = fieldStarts[column];
+        return new String(buffer, start, fieldEnds[column] - start, StandardCharsets.UTF_8);
+    }
+
+    public int getInt(int column) {
+        long value = parseInt(column);
+        if (value == INVALID) {
+            throw new NumberFormatException("Invalid int value: " + getString(column));
+        }
+        return (int) value;
+    }
+
+    public int getIntOrDefault(int column, int defaultValue) {
+        long value = parseInt(column);
+        if (value == INVALID) return defaultValue;
+        return (int) value;
+    }
+
+    private long parseInt(int column) {
+        if (!isPresent(column)) return INVALID;
+
+        byte[] buf = buffer;
+        int i = fieldStarts[column];
+        int end = fieldEnds[column];
+
+        boolean negative = false;
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            if (++i == end) return INVALID;
+        }
+
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) return INVALID;
+
+            result = result * 10 + digit;
+            if (result > 1L + Integer.MAX_VALUE) return INVALID;
+        }
+
+        if (negative) return -result;
+        if (result > Integer.MAX_VALUE) return INVALID;
+        return result;
+    }
+
+    /**
+     * Parses plain decimal numbers in place, anything else (exponents, too many digits, ...) falls back
+     * to {@link Double#parseDouble(String)}. Both paths give the same, correctly rounded, result.
+     */
+    public double getDouble(int column) {
+        if (column < 0 || column >= fieldCount) {
+            throw new NumberFormatException("Missing double value in column " + column);
+        }
+
+        byte[] buf = buffer;
+        int i = fieldStarts[column];
+        int end = fieldEnds[column];
+
+        boolean negative = false;
+        if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean digits = false;
+        boolean fraction = false;
+
+        for (; i < end; i++) {
+            byte b = buf[i];
+            if (b == '.' && !fraction) {
+                fraction = true;
                 continue;
             }
-            if (nextDelim == -1) {
-                result.add(line);
-                break;
+
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                return Double.parseDouble(getString(column));
             }
 
-            result.add(line.substring(0, nextDelim));
-            line = line.substring(nextDelim+1);
+            digits = true;
+            if (mantissa != 0 || digit != 0) significantDigits++;
+            mantissa = mantissa * 10 + digit;
+            if (fraction) fractionDigits++;
+        }
+
+        if (!digits || significantDigits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(getString(column));
+        }
+
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a GTFS date ({@code YYYYMMDD}).
+     *
+     * @return the date packed as {@code (year << 16) | (month << 8) | day}
+     */
+    public int getDate(int column) {
+        if (column < 0 || column >= fieldCount || fieldEnds[column] - fieldStarts[column] != 8) {
+            throw new NumberFormatException("Invalid date: " + getString(column));
         }
 
+        int start = fieldStarts[column];
+        int year = parseDigits(start, 4);
+        int month = parseDigits(start + 4, 2);
+        int day = parseDigits(start + 6, 2);
+
+        return (year << 16) | (month << 8) | day;
+    }
+
+    private int parseDigits(int start, int length) {
+        int result = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid digit in: " + new String(buffer, start, length, StandardCharsets.UTF_8));
+            }
+            result = result * 10 + digit;
+        }
         return result;
     }
 
+    /**
+     * @return true for {@code 1} and {@code true} (ignoring case and surrounding whitespace), false otherwise
+     */
+    public boolean getBoolean(int column) {
+        if (column < 0 || column >= fieldCount) return false;
+
+        int start = fieldStarts[column];
+        int end = fieldEnds[column];
+        while (start < end && isWhitespace(buffer[start])) start++;
+        while (end > start && isWhitespace(buffer[end - 1])) end--;
+
+        if (end - start == 1) {
+            return buffer[start] == '1';
+        }
+        if (end - start == 4) {
+            return (buffer[start] | 0x20) == 't'
+                    && (buffer[start + 1] | 0x20) == 'r'
+                    && (buffer[start + 2] | 0x20) == 'u'
+                    && (buffer[start + 3] | 0x20) == 'e';
+        }
+        return false;
+    }
+
+    /**
+     * Parses a GTFS time ({@code H:MM:SS}, the hours can go past 24).
+     *
+     * @return number of seconds since the start of the service day
+     * @throws NumberFormatException unless the value is three {@code :} separated numbers
+     */
+    public int getTime(int column) {
+        if (!isPresent(column)) {
+            throw new NumberFormatException("Missing time value in column " + column);
+        }
+
+        int result = 0;
+        int part = 0;
+        int parts = 1;
+        boolean digits = false;
+        for (int i = fieldStarts[column]; i < fieldEnds[column]; i++) {
+            byte b = buffer[i];
+            if (b == ':') {
+                if (!digits || parts == 3) {
+                    throw new NumberFormatException("Invalid time: " + getString(column));
+                }
+                result = result * 60 + part;
+                part = 0;
+                parts++;
+                digits = false;
+                continue;
+            }
+
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid time: " + getString(column));
+            }
+            part = part * 10 + digit;
+            digits = true;
+        }
+
+        if (parts != 3 || !digits) {
+            throw new NumberFormatException("Invalid time: " + getString(column));
+        }
+        return result * 60 + part;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
 
-    private final Map<String, Integer> descriptorMap;
-    private final Scanner scanner;
+    public StringColumn stringColumn(String name) {
+        return new StringColumn(name);
+    }
+
+    public IntColumn intColumn(String name) {
+        return new IntColumn(name);
+    }
 
-    private Csv(List<String> descriptors, Scanner scanner) {
-        this.scanner = scanner;
+    public DoubleColumn doubleColumn(String name) {
+        return new DoubleColumn(name);
+    }
+
+    public BooleanColumn booleanColumn(String name) {
+        return new BooleanColumn(name);
+    }
 
-        descriptorMap = new HashMap<>();
-        for (int i = 0; i < descriptors.size(); i++) {
-            descriptorMap.put(descriptors.get(i), i);
+    public DateColumn dateColumn(String name) {
+        return new DateColumn(name);
+    }
+
+    public TimeColumn timeColumn(String name) {
+        return new TimeColumn(name);
+    }
+
+    private List<String> materialize() {
+        List<String> result = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            result.add(getString(i));
         }
+        return result;
     }
 
     public Iterator<CsvLine> getLines() {
         return new Iterator<>() {
+            private boolean advanced = false;
+            private boolean hasRow = false;
+
             @Override
             public boolean hasNext() {
-                return scanner.hasNextLine();
+                if (!advanced) {
+                    try {
+                        hasRow = Csv.this.next();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    advanced = true;
+                }
+                return hasRow;
             }
 
             @Override
             public CsvLine next() {
-                return new CsvLine(parseCsvLine(scanner.nextLine()));
+                if (!hasNext()) throw new NoSuchElementException();
+                advanced = false;
+
+                return new CsvLine(materialize());
             }
         };
     }
 
 
+    /**
+     * A column bound by name once, after the header was read. Reading it is just an indexed access into the current row.
+     * The typed subclasses add primitive getters that do not box.
+     */
+    public abstract class Column<T> {
+        protected final String name;
+        protected final int index;
+
+        private Column(String name) {
+            this.name = name;
+            this.index = columnIndex(name);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return false if the header does not contain the column
+         */
+        public boolean exists() {
+            return index != -1;
+        }
+
+        /**
+         * @return true if the current row has a non-empty value in this column
+         */
+        public boolean isPresent() {
+            return Csv.this.isPresent(index);
+        }
+
+        public String getString() {
+            return Csv.this.getString(index);
+        }
+
+        public abstract T get();
+    }
+
+    public final class StringColumn extends Column<String> {
+        private StringColumn(String name) {
+            super(name);
+        }
+
+        public String getOrDefault(String defaultValue) {
+            String result = getString();
+            if (result == null || result.isBlank()) return defaultValue;
+            return result;
+        }
+
+        @Override
+        public String get() {
+            return getString();
+        }
+    }
+
+    public final class IntColumn extends Column<Integer> {
+        private IntColumn(String name) {
+            super(name);
+        }
+
+        public int getInt() {
+            return Csv.this.getInt(index);
+        }
+
+        public int getOrDefault(int defaultValue) {
+            return Csv.this.getIntOrDefault(index, defaultValue);
+        }
+
+        @Override
+        public Integer get() {
+            return getInt();
+        }
+    }
+
+    public final class DoubleColumn extends Column<Double> {
+        private DoubleColumn(String name) {
+            super(name);
+        }
+
+        public double getDouble() {
+            return Csv.this.getDouble(index);
+        }
+
+        @Override
+        public Double get() {
+            return getDouble();
+        }
+    }
+
+    public final class BooleanColumn extends Column<Boolean> {
+        private BooleanColumn(String name) {
+            super(name);
+        }
+
+        public boolean getBoolean() {
+            return Csv.this.getBoolean(index);
+        }
+
+        @Override
+        public Boolean get() {
+            return getBoolean();
+        }
+    }
+
+    /**
+     * See {@link Csv#getDate(int)}.
+     */
+    public final class DateColumn extends Column<Integer> {
+        private DateColumn(String name) {
+            super(name);
+        }
+
+        public int getDate() {
+            return Csv.this.getDate(index);
+        }
+
+        @Override
+        public Integer get() {
+            return getDate();
+        }
+    }
+
+    /**
+     * See {@link Csv#getTime(int)}.
+     */
+    public final class TimeColumn extends Column<Integer> {
+        private TimeColumn(String name) {
+            super(name);
+        }
+
+        public int getSeconds() {
+            return Csv.this.getTime(index);
+        }
+
+        @Override
+        public Integer get() {
+            return getSeconds();
+        }
+    }
+
+
     public class CsvLine {
         public final List<String> line;
 
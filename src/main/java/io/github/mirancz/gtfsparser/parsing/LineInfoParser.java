@@ -1,39 +1,58 @@
 package io.github.mirancz.gtfsparser.parsing;
 
 import io.github.mirancz.gtfsparser.util.CheckedOutputStream;
+import io.github.mirancz.gtfsparser.util.StringTable;
 
 import java.awt.*;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
 
 public class LineInfoParser extends Parser {
 
+    private final List<Line> lines = new ArrayList<>();
+
     public LineInfoParser(){
-        subscribeTransformer("routes.txt", "lines", this::parseAndWrite);
+        subscribeFile("routes.txt");
     }
 
-    protected void parseAndWrite(InputStream input, CheckedOutputStream output) throws Exception {
-        Csv stops = Csv.parse(input);
+    @Override
+    protected void onFileInternal(String name, InputStream input, Function<String, CheckedOutputStream> outputProvider) throws Exception {
+        Csv routes = Csv.parse(input);
 
-        Iterator<Csv.CsvLine> lines = stops.getLines();
+        Iterator<Csv.CsvLine> lines = routes.getLines();
 
         while (lines.hasNext()) {
-            output.writeBoolean(true);
             Csv.CsvLine line = lines.next();
 
             int routeId = parseRoute(line.get("route_id"));
-            String name = line.get("route_short_name");
+            String shortName = StringTable.GLOBAL.add(line.get("route_short_name"));
             Color backgroundColor = parseColor(line.getOrDefault("route_color","00E68C"));
             Color textColor = parseColor(line.getOrDefault("route_text_color", "000000"));
 
+            this.lines.add(new Line(routeId, shortName, backgroundColor, textColor));
+        }
+    }
+
+    /**
+     * The names refer to the {@link StringTable}, so they can only be written once it is frozen.
+     */
+    @Override
+    protected void onFinishInternal(Function<String, CheckedOutputStream> outputProvider) throws Exception {
+        CheckedOutputStream output = outputProvider.apply("lines");
+
+        for (Line line : lines) {
+            output.writeBoolean(true);
 
-            output.writeInt(routeId);
+            output.writeInt(line.routeId());
 
-            output.writeString(name);
+            output.writeInt(StringTable.GLOBAL.getId(line.name()));
 
-            writeColor(output, backgroundColor);
-            writeColor(output, textColor);
+            writeColor(output, line.backgroundColor());
+            writeColor(output, line.textColor());
         }
         output.writeBoolean(false);
     }
@@ -67,5 +86,7 @@ public class LineInfoParser extends Parser {
         return Integer.parseInt(routeId.substring(0, zInd));
     }
 
+    private record Line(int routeId, String name, Color backgroundColor, Color textColor) {
+    }
 
 }
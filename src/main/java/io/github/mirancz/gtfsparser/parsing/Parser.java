@@ -4,10 +4,7 @@ import io.github.mirancz.gtfsparser.util.CheckedOutputStream;
 import io.github.mirancz.gtfsparser.util.Pair;
 
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -15,6 +12,10 @@ public abstract class Parser {
 
     private final Map<String, Pair<String, Transformer>> transformers = new HashMap<>();
     private final Map<String, Consumer<InputStream>> readers = new HashMap<>();
+    private final Set<String> files = new HashSet<>();
+    private final Set<String> requiredFiles = new HashSet<>();
+    private final List<Pair<Set<String>, Join>> pendingJoins = new ArrayList<>();
+    private final Set<String> handledFiles = new HashSet<>();
 
     public final void onFile(String name, InputStream input, Function<String, CheckedOutputStream> outputProvider) throws Exception {
         try (WrappedOutputProvider wrapped = new WrappedOutputProvider(outputProvider)) {
@@ -28,7 +29,30 @@ public abstract class Parser {
             if (readers.containsKey(name)) {
                 readers.get(name).accept(input);
             }
+
+            for (Join join : markHandled(name)) {
+                join.call(wrapped::generate);
+            }
+        }
+    }
+
+    /**
+     * Records that the file was handled and returns the joins that just became ready.
+     * Synchronized so that a join sees the results of all of its files even if they were handled on different threads.
+     */
+    private synchronized List<Join> markHandled(String name) {
+        handledFiles.add(name);
+
+        List<Join> ready = new ArrayList<>();
+        Iterator<Pair<Set<String>, Join>> iterator = pendingJoins.iterator();
+        while (iterator.hasNext()) {
+            var pending = iterator.next();
+            if (handledFiles.containsAll(pending.left())) {
+                ready.add(pending.right());
+                iterator.remove();
+            }
         }
+        return ready;
     }
 
     public final void onFinish(Function<String, CheckedOutputStream> outputProvider) throws Exception {
@@ -37,12 +61,48 @@ public abstract class Parser {
         }
     }
 
+    /**
+     * @return names of all the files this parser consumes, other files are never passed to {@link #onFile}
+     */
+    public final Set<String> getSubscribedFiles() {
+        return Collections.unmodifiableSet(files);
+    }
+
+    /**
+     * @return files that have to be handled by all of their parsers before this parser gets any of its files
+     * when parsing concurrently
+     */
+    public final Set<String> getRequiredFiles() {
+        return Collections.unmodifiableSet(requiredFiles);
+    }
+
+    protected void requireFile(String name) {
+        requiredFiles.add(name);
+    }
+
+    /**
+     * Runs the join exactly once, right after the last of the given files was handled, regardless of their order.
+     */
+    protected void subscribeJoin(Set<String> names, Join join) {
+        pendingJoins.add(new Pair<>(Set.copyOf(names), join));
+        files.addAll(names);
+    }
+
+    /**
+     * Subscribes to a file handled by {@link #onFileInternal}.
+     */
+    protected void subscribeFile(String name) {
+        files.add(name);
+    }
+
     protected void subscribeReader(String name, Consumer<InputStream> consumer) {
         readers.put(name, consumer);
+        files.add(name);
     }
 
     protected void subscribeTransformer(String name, String outputName, Transformer transformer) {
         transformers.put(name, new Pair<>(outputName, transformer));
+        files.add(name);
     }
 
     protected void onFinishInternal(Function<String, CheckedOutputStream> outputProvider) throws Exception {
@@ -56,6 +116,11 @@ public abstract class Parser {
         void call(InputStream inputStream, CheckedOutputStream output) throws Exception;
     }
 
+    @FunctionalInterface
+    protected interface Join {
+        void call(Function<String, CheckedOutputStream> outputProvider) throws Exception;
+    }
+
     private static class WrappedOutputProvider implements AutoCloseable {
 
         private final List<CheckedOutputStream> streams = new ArrayList<>();
@@ -1,40 +1,159 @@
 package io.github.mirancz.gtfsparser.parsing;
 
 import io.github.mirancz.gtfsparser.util.CheckedOutputStream;
+import io.github.mirancz.gtfsparser.util.SpatialGrid;
+import io.github.mirancz.gtfsparser.util.StopInfo;
+import io.github.mirancz.gtfsparser.util.StringTable;
 import io.github.mirancz.gtfsparser.util.Utils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 public class StopParser extends Parser {
 
+    private static final int STOPS_PER_CELL = 4;
+
+    /**
+     * walked distance per straight line distance, streets rarely go straight
+     */
+    private static final double DETOUR_FACTOR = 1.3;
+    private static final double WALKING_SPEED = 1.4;
+
+    private final int walkRadius;
+
     private final HashSet<Integer> processed = new HashSet<>();
+    private final List<Stop> stops = new ArrayList<>();
+    private final List<Post> posts = new ArrayList<>();
+
+    /**
+     * @param walkRadius meters between two posts still connected by a footpath
+     */
+    public StopParser(int walkRadius) {
+        this.walkRadius = walkRadius;
 
-    public StopParser() {
-        subscribeTransformer("stops.txt", "stops", this::parseAndWrite);
+        subscribeFile("stops.txt");
     }
 
-    public void parseAndWrite(InputStream input, CheckedOutputStream output) throws IOException {
-        Csv stops = Csv.parse(input);
+    @Override
+    protected void onFileInternal(String name, InputStream input, Function<String, CheckedOutputStream> outputProvider) throws Exception {
+        Csv stopsCsv = Csv.parse(input);
 
-        Iterator<Csv.CsvLine> lines = stops.getLines();
+        Iterator<Csv.CsvLine> lines = stopsCsv.getLines();
 
         while (lines.hasNext()) {
             Csv.CsvLine line = lines.next();
-            int stopId = Utils.parseStop(line.get("stop_id")).stopId();
+            StopInfo info = Utils.parseStop(line.get("stop_id"));
+            posts.add(new Post(info, line.getDouble("stop_lat"), line.getDouble("stop_lon")));
+
+            int stopId = info.stopId();
             if (processed.contains(stopId)) continue;
             processed.add(stopId);
 
+            stops.add(new Stop(stopId,
+                    StringTable.GLOBAL.add(line.get("stop_name")),
+                    StringTable.GLOBAL.add(line.get("parent_station")),
+                    line.getDouble("stop_lat"),
+                    line.getDouble("stop_lon")));
+        }
+    }
+
+    /**
+     * The names refer to the {@link StringTable}, so they can only be written once it is frozen.
+     */
+    @Override
+    protected void onFinishInternal(Function<String, CheckedOutputStream> outputProvider) throws Exception {
+        write(outputProvider.apply("stops"));
+        writeGrid(outputProvider.apply("stop_grid"));
+        writeFootpaths(outputProvider.apply("footpaths"));
+    }
+
+    /**
+     * Writes a {@link SpatialGrid} over the stops, so the stops near a position can be found without going through all
+     * of them.
+     */
+    private void writeGrid(CheckedOutputStream output) throws IOException {
+        int[] ids = new int[stops.size()];
+        int[] lats = new int[stops.size()];
+        int[] lons = new int[stops.size()];
+        for (int i = 0; i < stops.size(); i++) {
+            ids[i] = stops.get(i).id();
+            lats[i] = SpatialGrid.toFixed(stops.get(i).lat());
+            lons[i] = SpatialGrid.toFixed(stops.get(i).lon());
+        }
+
+        new SpatialGrid(lats, lons, STOPS_PER_CELL).write(output, ids);
+    }
+
+    private void write(CheckedOutputStream output) throws IOException {
+        for (Stop stop : stops) {
             output.writeBoolean(true);
-            output.writeInt(stopId);
-            output.writeString(line.get("stop_name"));
-            output.writeString(line.get("parent_station"));
-            output.writeDouble(line.getDouble("stop_lat"));
-            output.writeDouble(line.getDouble("stop_lon"));
+            output.writeInt(stop.id());
+            output.writeInt(StringTable.GLOBAL.getId(stop.name()));
+            output.writeInt(StringTable.GLOBAL.getId(stop.parentStation()));
+            output.writeDouble(stop.lat());
+            output.writeDouble(stop.lon());
         }
         output.writeBoolean(false);
     }
 
+    /**
+     * Writes the footpaths between every two posts at most {@link #walkRadius} apart, the pairs are found through a
+     * {@link SpatialGrid} so only the posts around every post are compared:
+     * <pre>
+     * int post count
+     * per post, sorted by stop and post id: short stop id, short post id
+     * post count + 1 ints, the start of the footpaths of every post
+     * per footpath, sorted by post: int index of the post walked to, short walking seconds
+     * </pre>
+     */
+    private void writeFootpaths(CheckedOutputStream output) throws IOException {
+        posts.sort(Comparator.comparingInt((Post post) -> post.info().stopId()).thenComparingInt(post -> post.info().postId()));
+
+        int[] lats = new int[posts.size()];
+        int[] lons = new int[posts.size()];
+        for (int i = 0; i < posts.size(); i++) {
+            lats[i] = SpatialGrid.toFixed(posts.get(i).lat());
+            lons[i] = SpatialGrid.toFixed(posts.get(i).lon());
+        }
+        SpatialGrid grid = new SpatialGrid(lats, lons, STOPS_PER_CELL);
+
+        output.writeInt(posts.size());
+        for (Post post : posts) {
+            post.info().write(output);
+        }
+
+        int[][] footpaths = new int[posts.size()][];
+        int start = 0;
+        for (int i = 0; i < posts.size(); i++) {
+            IntStream.Builder targets = IntStream.builder();
+            grid.forEachWithin(i, walkRadius, targets::add);
+
+            footpaths[i] = targets.build().sorted().toArray();
+
+            output.writeInt(start);
+            start += footpaths[i].length;
+        }
+        output.writeInt(start);
+
+        for (int i = 0; i < posts.size(); i++) {
+            for (int target : footpaths[i]) {
+                output.writeInt(target);
+                output.writeShort((int) Math.ceil(grid.distance(i, target) * DETOUR_FACTOR / WALKING_SPEED));
+            }
+        }
+    }
+
+    private record Post(StopInfo info, double lat, double lon) {
+    }
+
+    private record Stop(int id, String name, String parentStation, double lat, double lon) {
+    }
+
 }
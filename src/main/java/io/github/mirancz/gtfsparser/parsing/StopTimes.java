@@ -0,0 +1,100 @@
+package io.github.mirancz.gtfsparser.parsing;
+
+import java.util.Arrays;
+
+/**
+ * Column oriented storage of the rows of stop_times.txt, a row is addressed by its index in the file.
+ * <p>
+ * Every column is kept in fixed size chunks, so growing never copies the data already stored and a row costs
+ * 14 bytes instead of a record with two time objects.
+ */
+final class StopTimes {
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private int[][] trips = new int[0][];
+    private short[][] stops = new short[0][];
+    private short[][] posts = new short[0][];
+    private short[][] sequences = new short[0][];
+    private short[][] arrivals = new short[0][];
+    private short[][] departures = new short[0][];
+
+    private int size;
+
+    /**
+     * @param sequence index of the stop within its trip
+     * @param arrival  minutes since the start of the service day
+     * @param departure minutes since the start of the service day
+     * @return index of the added row
+     */
+    int add(int tripId, short stopId, short postId, int sequence, int arrival, int departure) {
+        int chunk = size >>> CHUNK_SHIFT;
+        if (chunk == trips.length) {
+            addChunk();
+        }
+
+        int i = size & CHUNK_MASK;
+        trips[chunk][i] = tripId;
+        stops[chunk][i] = stopId;
+        posts[chunk][i] = postId;
+        sequences[chunk][i] = toShort(sequence);
+        arrivals[chunk][i] = toShort(arrival);
+        departures[chunk][i] = toShort(departure);
+
+        return size++;
+    }
+
+    private void addChunk() {
+        int chunks = trips.length + 1;
+
+        trips = Arrays.copyOf(trips, chunks);
+        stops = Arrays.copyOf(stops, chunks);
+        posts = Arrays.copyOf(posts, chunks);
+        sequences = Arrays.copyOf(sequences, chunks);
+        arrivals = Arrays.copyOf(arrivals, chunks);
+        departures = Arrays.copyOf(departures, chunks);
+
+        trips[chunks - 1] = new int[CHUNK_SIZE];
+        stops[chunks - 1] = new short[CHUNK_SIZE];
+        posts[chunks - 1] = new short[CHUNK_SIZE];
+        sequences[chunks - 1] = new short[CHUNK_SIZE];
+        arrivals[chunks - 1] = new short[CHUNK_SIZE];
+        departures[chunks - 1] = new short[CHUNK_SIZE];
+    }
+
+    private static short toShort(int v) {
+        if (v > Short.MAX_VALUE || v < Short.MIN_VALUE) throw new IllegalStateException();
+        return (short) v;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int tripId(int row) {
+        return trips[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    short stopId(int row) {
+        return stops[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    short postId(int row) {
+        return posts[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    int sequence(int row) {
+        return sequences[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    int arrival(int row) {
+        return arrivals[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    int departure(int row) {
+        return departures[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+}
@@ -9,36 +9,42 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 public class TransfersParser extends Parser {
 
     public TransfersParser() {
         subscribeTransformer("transfers.txt", "transfers", this::parseAndWrite);
+
+        // stop ids that are not in the storage yet get assigned in the order of stops.txt
+        requireFile("stops.txt");
     }
 
     protected void parseAndWrite(InputStream input, CheckedOutputStream output) throws Exception {
         Csv entries = Csv.parse(input);
 
-        Iterator<Csv.CsvLine> lines = entries.getLines();
+        Csv.StringColumn fromStopColumn = entries.stringColumn("from_stop_id");
+        Csv.StringColumn toStopColumn = entries.stringColumn("to_stop_id");
+        Csv.IntColumn transferTypeColumn = entries.intColumn("transfer_type");
+        Csv.IntColumn minTransferTimeColumn = entries.intColumn("min_transfer_time");
+        Csv.IntColumn fromTripColumn = entries.intColumn("from_trip_id");
+        Csv.IntColumn toTripColumn = entries.intColumn("to_trip_id");
+        Csv.IntColumn maxWaitingTimeColumn = entries.intColumn("max_waiting_time");
 
         List<Transfer> transfers = new ArrayList<>();
         List<TripTransfer> tripTransfers = new ArrayList<>();
 
-        while (lines.hasNext()) {
-            Csv.CsvLine line = lines.next();
-
-            StopInfo fromStop = Utils.parseStop(line.get("from_stop_id"));
-            StopInfo toStop = Utils.parseStop(line.get("to_stop_id"));
+        while (entries.next()) {
+            StopInfo fromStop = Utils.parseStop(fromStopColumn.getString());
+            StopInfo toStop = Utils.parseStop(toStopColumn.getString());
 
-            int transferType = line.getInt("transfer_type");
-            int minTransferTime = line.getInt("min_transfer_time");
+            int transferType = transferTypeColumn.getInt();
+            int minTransferTime = minTransferTimeColumn.getInt();
 
-            if (line.getIntOrDefault("from_trip_id", -1) != -1) {
-                int fromTripId = IdStorage.TRIP.getId(line.getInt("from_trip_id"));
-                int toTripId = IdStorage.TRIP.getId(line.getInt("to_trip_id"));
-                int maxWaitingTime = line.getInt("max_waiting_time");
+            if (fromTripColumn.getOrDefault(-1) != -1) {
+                int fromTripId = IdStorage.TRIP.getId(fromTripColumn.getInt());
+                int toTripId = IdStorage.TRIP.getId(toTripColumn.getInt());
+                int maxWaitingTime = maxWaitingTimeColumn.getInt();
 
                 tripTransfers.add(new TripTransfer(fromStop, toStop, transferType, minTransferTime, fromTripId, toTripId, maxWaitingTime));
             } else {
@@ -46,7 +52,6 @@ public class TransfersParser extends Parser {
             }
         }
 
-
         output.writeInt(transfers.size());
         for (Transfer transfer : transfers) {
             transfer.write(output);
@@ -2,6 +2,7 @@ package io.github.mirancz.gtfsparser.parsing;
 
 import io.github.mirancz.gtfsparser.util.CheckedOutputStream;
 import io.github.mirancz.gtfsparser.util.IdStorage;
+import io.github.mirancz.gtfsparser.util.StringTable;
 import io.github.mirancz.gtfsparser.util.Utils;
 
 import java.io.IOException;
@@ -14,35 +15,48 @@ public class TripParser extends Parser {
 
     private List<Trip> trips = null;
     private List<Route> routes = null;
-    private Map<String, Integer> headsignPool;
-    private boolean wrote = false;
+    private StopTimes stopTimes = null;
 
     public TripParser() {
-    }
-
-    private static void writeTripToRoute(CheckedOutputStream os, List<RouteStop> routeStops) throws IOException {
-        for (int i = 0; i < routeStops.size(); i++) {
-            RouteStop routeStop = routeStops.get(i);
+        subscribeFile("trips.txt");
+        subscribeFile("stop_times.txt");
+        subscribeJoin(Set.of("trips.txt", "stop_times.txt"), this::writeJoined);
 
-            if (i != routeStop.id) throw new IllegalStateException();
+        // stop ids that are not in the storage yet get assigned in the order of stops.txt
+        requireFile("stops.txt");
+    }
 
-            os.writeShort(routeStop.stopId);
-            os.writeInt(routeStop.tripId);
-            os.writeShort(routeStop.postId);
-            os.writeShort(routeStop.sequence);
+    /**
+     * Per trip a signed varint delta of the trip id to the previous trip and a varint stop count, then per stop
+     * varint stop and post ids and the arrival and departure as signed varint deltas to the previous time
+     * (the previous departure, 0 at the start of a trip). Rows are numbered in this order, the sequence is implied.
+     */
+    private static void writeRouteStops(CheckedOutputStream os, StopTimes stopTimes, List<Route> routes) throws IOException {
+        os.writeVarInt(routes.size());
 
-            writeTime(os, routeStop.arrival);
-            writeTime(os, routeStop.departure);
+        int previousTripId = 0;
+        for (Route route : routes) {
+            os.writeSignedVarInt(route.tripId() - previousTripId);
+            os.writeVarInt(route.length());
+            previousTripId = route.tripId();
+
+            int time = 0;
+            for (int row = route.startPos(); row < route.startPos() + route.length(); row++) {
+                os.writeVarInt(stopTimes.stopId(row));
+                os.writeVarInt(stopTimes.postId(row));
+
+                os.writeSignedVarInt(stopTimes.arrival(row) - time);
+                os.writeSignedVarInt(stopTimes.departure(row) - stopTimes.arrival(row));
+                time = stopTimes.departure(row);
+            }
         }
     }
 
-    private static void writeTime(CheckedOutputStream os, Time time) throws IOException {
-        os.writeByte(time.hours);
-        os.writeByte(time.minutes);
-
-        if (time.second != 0) {
+    private static int toMinutes(int seconds) {
+        if (seconds % 60 != 0) {
             throw new IllegalStateException("Wrongly assumed seconds would be zero!");
         }
+        return seconds / 60;
     }
 
 
@@ -55,12 +69,21 @@ public class TripParser extends Parser {
         if (name.equals("stop_times.txt")) {
             routes = parseStopTimes(input, outputProvider.apply("stop_times"), outputProvider.apply("route_stops"));
         }
+    }
 
-        if (trips != null && routes != null && !wrote) {
-            writeTrips(outputProvider.apply("trips"));
-            writeStopIdToRoute(outputProvider.apply("stop_to_route"));
-            wrote = true;
-        }
+    private void writeJoined(Function<String, CheckedOutputStream> outputProvider) throws Exception {
+        writeStopIdToRoute(outputProvider.apply("stop_to_route"));
+        writeDepartures(outputProvider.apply("departures"));
+    }
+
+    /**
+     * The headsigns refer to the {@link StringTable}, so the trips can only be written once it is frozen.
+     */
+    @Override
+    protected void onFinishInternal(Function<String, CheckedOutputStream> outputProvider) throws Exception {
+        if (trips == null || routes == null) return;
+
+        writeTrips(outputProvider.apply("trips"));
     }
 
     private void writeTrips(CheckedOutputStream os) throws IOException {
@@ -69,20 +92,11 @@ public class TripParser extends Parser {
             tripIdToRoute.put(route.tripId(), route);
         }
 
-        os.writeInt(headsignPool.size());
-        for (Map.Entry<String, Integer> entry : headsignPool.entrySet()) {
-            os.writeInt(entry.getValue());
-
-            String name = entry.getKey();
-            
-            os.writeString(name); 
-        }
-
         os.writeInt(trips.size());
         for (Trip trip : trips) {
             os.writeShort(trip.serviceId);
             os.writeShort(trip.lineId);
-            os.writeInt(trip.headsignId);
+            os.writeInt(StringTable.GLOBAL.getId(trip.headsign));
             os.writeShort(trip.blockId);
             os.writeByte(trip.data);
 
@@ -95,34 +109,33 @@ public class TripParser extends Parser {
     }
 
     private List<Route> parseStopTimes(InputStream input, CheckedOutputStream os, CheckedOutputStream routes) throws Exception {
-        Csv tripsCsv = Csv.parse(input);
+        Csv stopTimesCsv = Csv.parse(input);
 
-        Iterator<Csv.CsvLine> lines = tripsCsv.getLines();
+        Csv.IntColumn tripIdColumn = stopTimesCsv.intColumn("trip_id");
+        Csv.StringColumn stopIdColumn = stopTimesCsv.stringColumn("stop_id");
+        Csv.IntColumn sequenceColumn = stopTimesCsv.intColumn("stop_sequence");
+        Csv.TimeColumn arrivalColumn = stopTimesCsv.timeColumn("arrival_time");
+        Csv.TimeColumn departureColumn = stopTimesCsv.timeColumn("departure_time");
+
+        stopTimes = new StopTimes();
 
         Route currentRoute = null;
         int prevSequence = -1;
-
-        Map<Short, List<Integer>> stopIdToRoute = new HashMap<>();
-        List<RouteStop> routeStops = new ArrayList<>();
-
-        int routeStopIndex = 0;
-        int lineNumber = 0;
         int index = 0;
 
         List<Route> result = new ArrayList<>();
 
-        while (lines.hasNext()) {
-            Csv.CsvLine line = lines.next();
-
-            int tripId = IdStorage.TRIP.getId(line.getInt("trip_id"));
+        while (stopTimesCsv.next()) {
+            int tripId = IdStorage.TRIP.getId(tripIdColumn.getInt());
 
-            var stopInfo = Utils.parseStop(line.get("stop_id"));
+            var stopInfo = Utils.parseStop(stopIdColumn.getString());
 
-            int sequence = line.getInt("stop_sequence");
+            int sequence = sequenceColumn.getInt();
+            int row = stopTimes.size();
 
 
             if (currentRoute == null) {
-                currentRoute = new Route(tripId, lineNumber);
+                currentRoute = new Route(tripId, row);
                 prevSequence = sequence - 1;
             }
 
@@ -132,55 +145,75 @@ public class TripParser extends Parser {
                 if (currentRoute.tripId != tripId) {
                     throw new IllegalStateException(currentRoute + " ; " + tripId + " ; " + sequence);
                 }
-
-                RouteStop routeStop = new RouteStop(routeStops.size(), currentRoute.tripId, stopInfo.stopId(), stopInfo.postId(), index++,
-                        Time.parse(line.get("arrival_time")), Time.parse(line.get("departure_time"))
-                );
-
-                stopIdToRoute.computeIfAbsent(routeStop.stopId(), k -> new ArrayList<>()).add(routeStopIndex++);
-                routeStops.add(routeStop);
-                currentRoute.stops.add(routeStop);
             } else {
-                currentRoute.length = lineNumber-currentRoute.startPos();
+                currentRoute.length = row - currentRoute.startPos();
                 result.add(currentRoute);
-                currentRoute = new Route(tripId, lineNumber);
+                currentRoute = new Route(tripId, row);
                 index = 0;
-
-                RouteStop routeStop = new RouteStop(routeStops.size(), currentRoute.tripId(), stopInfo.stopId(), stopInfo.postId(), index++,
-                        Time.parse(line.get("arrival_time")), Time.parse(line.get("departure_time"))
-                );
-                stopIdToRoute.computeIfAbsent(routeStop.stopId(), k -> new ArrayList<>()).add(routeStopIndex++);
-                routeStops.add(routeStop);
             }
 
-            prevSequence = sequence;
-            lineNumber++;
+            stopTimes.add(tripId, stopInfo.stopId(), stopInfo.postId(), index++,
+                    toMinutes(arrivalColumn.getSeconds()), toMinutes(departureColumn.getSeconds()));
 
+            prevSequence = sequence;
+        }
+        if (currentRoute != null) {
+            currentRoute.length = stopTimes.size() - currentRoute.startPos();
+            result.add(currentRoute);
         }
-        result.add(currentRoute);
 
         // stopId -> [tripId]
         // tripId -> [routeStop]
 
-        os.writeInt(stopIdToRoute.size());
+        writeStopIdToRouteStops(os, stopTimes);
 
-        for (Map.Entry<Short, List<Integer>> entry : stopIdToRoute.entrySet()) {
-            short stopId = entry.getKey();
-            os.writeShort(stopId);
+        writeRouteStops(routes, stopTimes, result);
 
-            var list = entry.getValue();
-            os.writeInt(list.size());
-            for (Integer routeStopId : list) {
-                os.writeInt(routeStopId);
-            }
+        return result;
+    }
+
+    /**
+     * Writes the rows of every stop, grouped by a counting sort over the stop ids.
+     */
+    private static void writeStopIdToRouteStops(CheckedOutputStream os, StopTimes stopTimes) throws IOException {
+        int maxStopId = -1;
+        for (int row = 0; row < stopTimes.size(); row++) {
+            maxStopId = Math.max(maxStopId, stopTimes.stopId(row));
         }
 
-        writeTripToRoute(routes, routeStops);
+        int[] offsets = new int[maxStopId + 2];
+        for (int row = 0; row < stopTimes.size(); row++) {
+            offsets[stopTimes.stopId(row) + 1]++;
+        }
 
-        return result;
+        int stopCount = 0;
+        for (int stopId = 0; stopId <= maxStopId; stopId++) {
+            if (offsets[stopId + 1] != 0) stopCount++;
+            offsets[stopId + 1] += offsets[stopId];
+        }
+
+        int[] rows = new int[stopTimes.size()];
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int row = 0; row < stopTimes.size(); row++) {
+            rows[next[stopTimes.stopId(row)]++] = row;
+        }
+
+        os.writeInt(stopCount);
+
+        for (int stopId = 0; stopId <= maxStopId; stopId++) {
+            int from = offsets[stopId];
+            int to = offsets[stopId + 1];
+            if (from == to) continue;
+
+            os.writeShort(stopId);
+            os.writeInt(to - from);
+            for (int i = from; i < to; i++) {
+                os.writeInt(rows[i]);
+            }
+        }
     }
 
-    record Trip(int id, int serviceId, int lineId, int headsignId, int blockId, byte data) {
+    record Trip(int id, int serviceId, int lineId, String headsign, int blockId, byte data) {
     }
 
     private List<Trip> parseTrips(InputStream input) throws IOException {
@@ -188,9 +221,6 @@ public class TripParser extends Parser {
 
         Iterator<Csv.CsvLine> lines = tripsCsv.getLines();
 
-        headsignPool = new HashMap<>();
-        int poolId = 0;
-
         List<Trip> trips = new ArrayList<>();
 
         int expectedId = 0;
@@ -207,21 +237,14 @@ public class TripParser extends Parser {
 
             int lineId = Integer.parseInt(routeId.substring(1, routeId.indexOf("D")));
 
-            String headSign = line.get("trip_headsign");
-
-            int headsignId;
-            if (headsignPool.containsKey(headSign)) {
-                headsignId = headsignPool.get(headSign);
-            } else {
-                headsignPool.put(headSign, (headsignId = (poolId++)));
-            }
+            String headsign = StringTable.GLOBAL.add(line.get("trip_headsign"));
 
             int blockId = line.getIntOrDefault("block_id", -1);
             boolean bikesAllowed = line.getBoolean("wheelchair_accessible");
 
             byte data = 0;
             if (bikesAllowed) data = 1;
-            trips.add(new Trip(id, serviceId, lineId, headsignId, blockId, data));
+            trips.add(new Trip(id, serviceId, lineId, headsign, blockId, data));
         }
 
 
@@ -229,137 +252,306 @@ public class TripParser extends Parser {
         return trips;
     }
 
-    private void writeStopIdToRoute(CheckedOutputStream os) throws IOException {
-        List<RoutesContainer> routeContainers = parseContainers();
-
-        int max = 0;
-        for (RoutesContainer cont : routeContainers) {
-            for (RouteStopsContainer stop : cont.stops()) {
-                int id = stop.stopId();
-                max = Math.max(max, id);
+    /**
+     * Writes a departure board for every stop and post, so the next departures are a binary search away:
+     * <pre>
+     * int board count
+     * per board, sorted by stop and post: short stop id, short post id, int first entry, int entry count
+     * per entry, sorted by departure within its board: short departure, short service id, int route_stops row
+     * </pre>
+     * The last stop of a trip is not a departure, so it is left out. Departures are minutes since the start of the
+     * service day, a trip leaving after midnight stays on the board of its service day with 24:00 or later.
+     */
+    private void writeDepartures(CheckedOutputStream os) throws IOException {
+        // grouped by board with a sort of (board << 32 | row) first, then every board is sorted by (departure << 32 | row)
+        long[] keys = new long[stopTimes.size()];
+        int count = 0;
+        for (Route route : routes) {
+            for (int row = route.startPos(); row < route.startPos() + route.length() - 1; row++) {
+                keys[count++] = (long) board(row) << 32 | row;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+
+        int[] boardStarts = new int[count + 1];
+        int boardCount = 0;
+        for (int from = 0, to; from < count; from = to) {
+            long board = keys[from] >>> 32;
+            to = from;
+            while (to < count && keys[to] >>> 32 == board) {
+                int row = (int) keys[to];
+                keys[to++] = (long) stopTimes.departure(row) << 32 | row;
             }
+            Arrays.sort(keys, from, to);
+            boardStarts[boardCount++] = from;
+        }
+        boardStarts[boardCount] = count;
+
+        os.writeInt(boardCount);
+        for (int board = 0; board < boardCount; board++) {
+            int row = (int) keys[boardStarts[board]];
+            os.writeShort(stopTimes.stopId(row));
+            os.writeShort(stopTimes.postId(row));
+            os.writeInt(boardStarts[board]);
+            os.writeInt(boardStarts[board + 1] - boardStarts[board]);
         }
 
-        List<RouteStopsContainer>[] map = new List[max+1];
+        for (int i = 0; i < count; i++) {
+            int row = (int) keys[i];
+            os.writeShort(stopTimes.departure(row));
+            os.writeShort(trips.get(stopTimes.tripId(row)).serviceId());
+            os.writeInt(row);
+        }
+    }
 
-        for (RoutesContainer cont : routeContainers) {
-            for (RouteStopsContainer stop : cont.stops()) {
-                int id = stop.stopId();
+    /**
+     * @return {@code stopId << 16 | postId}, both fit in 15 bits
+     */
+    private int board(int row) {
+        return stopTimes.stopId(row) << 16 | stopTimes.postId(row);
+    }
 
-                if (map[id] == null) {
-                    map[id] = new ArrayList<>();
-                }
-                map[id].add(stop);
+    /**
+     * Writes the trips grouped into {@link Pattern patterns}, followed by the patterns passing every stop:
+     * <pre>
+     * varint pattern count
+     * per pattern:
+     *   varint service id, varint stop count
+     *   per stop: varint stop id, varint post id
+     *   per stop but the first: signed varint delta of the profile, minutes the stop departs after the first one
+     *   varint trip count
+     *   per trip: signed varint delta of its first route_stops row to the previous trip
+     *   runs of trips in order of departure until all trips are covered:
+     *     varint count << 1 | exception
+     *     varint first departure minus the last departure of the previous run (0 before the first run)
+     *     if count > 1: varint headway, the trips depart every headway minutes and all follow the profile
+     *     if exception: per stop but the first, signed varint difference of the trip to the profile
+     * varint stop count (max stop id + 1)
+     * per stop: varint count, per pattern passing it: varint delta of the pattern index, varint index of the stop in it
+     * </pre>
+     * The row of a trip at a stop is its first row plus the index of the stop.
+     */
+    private void writeStopIdToRoute(CheckedOutputStream os) throws IOException {
+        List<Pattern> patterns = parsePatterns();
+
+        os.writeVarInt(patterns.size());
+        for (Pattern pattern : patterns) {
+            writePattern(os, pattern);
+        }
+
+        int maxStopId = -1;
+        for (Pattern pattern : patterns) {
+            Route first = pattern.routes().getFirst();
+            for (int row = first.startPos(); row < first.startPos() + first.length(); row++) {
+                maxStopId = Math.max(maxStopId, stopTimes.stopId(row));
             }
         }
 
-        os.writeInt(map.length);
+        int[] offsets = new int[maxStopId + 2];
+        for (Pattern pattern : patterns) {
+            Route first = pattern.routes().getFirst();
+            for (int row = first.startPos(); row < first.startPos() + first.length(); row++) {
+                offsets[stopTimes.stopId(row) + 1]++;
+            }
+        }
+        for (int stopId = 0; stopId <= maxStopId; stopId++) {
+            offsets[stopId + 1] += offsets[stopId];
+        }
 
-        for (List<RouteStopsContainer> routeStopsContainers : map) {
-            if (routeStopsContainers == null) {
-                os.writeInt(0);
-                continue;
+        // filled in pattern order, so the pattern indices of a stop only increase
+        int[] patternIndices = new int[offsets[maxStopId + 1]];
+        int[] stopIndices = new int[patternIndices.length];
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int p = 0; p < patterns.size(); p++) {
+            Route first = patterns.get(p).routes().getFirst();
+            for (int i = 0; i < first.length(); i++) {
+                int position = next[stopTimes.stopId(first.startPos() + i)]++;
+                patternIndices[position] = p;
+                stopIndices[position] = i;
             }
-            os.writeInt(routeStopsContainers.size());
-            for (RouteStopsContainer container : routeStopsContainers) {
-                os.writeShort(container.stopId); // FIXME not needed, just equal to the index
-                os.writeShort(container.postId);
-                os.writeShort(container.serviceId);
-                writeTime(os, container.startTime);
+        }
 
-                os.writeShort(container.stops.length);
+        os.writeVarInt(maxStopId + 1);
+        for (int stopId = 0; stopId <= maxStopId; stopId++) {
+            os.writeVarInt(offsets[stopId + 1] - offsets[stopId]);
 
-                for (long stop : container.stops) {
-                    os.writeLong(stop);
-                }
+            int previousPattern = 0;
+            for (int i = offsets[stopId]; i < offsets[stopId + 1]; i++) {
+                os.writeVarInt(patternIndices[i] - previousPattern);
+                os.writeVarInt(stopIndices[i]);
+                previousPattern = patternIndices[i];
             }
         }
     }
 
-    private List<RoutesContainer> parseContainers() {
-        record Entry(List<Long> stops, int serviceId) {
+    private void writePattern(CheckedOutputStream os, Pattern pattern) throws IOException {
+        List<Route> routes = pattern.routes();
+        Route first = routes.getFirst();
+        int length = first.length();
 
+        os.writeVarInt(pattern.serviceId());
+        os.writeVarInt(length);
+        for (int row = first.startPos(); row < first.startPos() + length; row++) {
+            os.writeVarInt(stopTimes.stopId(row));
+            os.writeVarInt(stopTimes.postId(row));
+        }
 
-            static Entry of(List<RouteStop> rs, int serviceId) {
-                return new Entry(rs.stream().map(s -> ((long)s.stopId()<<32) | (s.postId() & 0xFFFFFFL)).toList(), serviceId);
+        // minutes every stop departs after the first one
+        int[] starts = new int[routes.size()];
+        int[][] offsets = new int[routes.size()][length];
+        for (int j = 0; j < routes.size(); j++) {
+            int startPos = routes.get(j).startPos();
+            starts[j] = stopTimes.departure(startPos);
+            for (int i = 0; i < length; i++) {
+                offsets[j][i] = stopTimes.departure(startPos + i) - starts[j];
             }
+        }
+
+        int[] profile = mostCommon(offsets);
+        for (int i = 1; i < length; i++) {
+            os.writeSignedVarInt(profile[i] - profile[i - 1]);
+        }
 
+        os.writeVarInt(routes.size());
+        int previousRow = 0;
+        for (Route route : routes) {
+            os.writeSignedVarInt(route.startPos() - previousRow);
+            previousRow = route.startPos();
+        }
+
+        int previousStart = 0;
+        int j = 0;
+        while (j < routes.size()) {
+            boolean exception = !Arrays.equals(offsets[j], profile);
+
+            // evenly spaced trips that follow the profile collapse into a single frequency run
+            int count = 1;
+            int headway = 0;
+            if (!exception && j + 1 < routes.size() && Arrays.equals(offsets[j + 1], profile)) {
+                headway = starts[j + 1] - starts[j];
+                count = 2;
+                while (j + count < routes.size() && Arrays.equals(offsets[j + count], profile)
+                        && starts[j + count] - starts[j + count - 1] == headway) {
+                    count++;
+                }
+            }
+
+            os.writeVarInt(count << 1 | (exception ? 1 : 0));
+            os.writeVarInt(starts[j] - previousStart);
+            if (count > 1) {
+                os.writeVarInt(headway);
+            }
+            if (exception) {
+                for (int i = 1; i < length; i++) {
+                    os.writeSignedVarInt(offsets[j][i] - profile[i]);
+                }
+            }
+
+            previousStart = starts[j + count - 1];
+            j += count;
+        }
+    }
+
+    /**
+     * @return the running times shared by the most trips, the earliest of them on a tie
+     */
+    private static int[] mostCommon(int[][] offsets) {
+        record Key(int[] values) {
             @Override
             public int hashCode() {
-                return Objects.hash(stops, serviceId);
+                return Arrays.hashCode(values);
             }
 
             @Override
             public boolean equals(Object object) {
-                if (!(object instanceof Entry(List<Long> otherStops, int id))) return false;
-                return Objects.equals(stops, otherStops) && this.serviceId == id;
+                return object instanceof Key(int[] other) && Arrays.equals(values, other);
             }
         }
 
-        Map<Entry, List<List<RouteStop>>> map = new HashMap<>();
-
-        for (Route route : routes) {
-            Entry entry = Entry.of(route.stops, trips.get(route.tripId).serviceId);
-
-            if (map.containsKey(entry)) {
-                map.get(entry).add(route.stops);
-            } else {
-                map.put(entry, new ArrayList<>(List.of(route.stops)));
+        Map<Key, Integer> counts = new HashMap<>();
+        int[] best = offsets[0];
+        int bestCount = 0;
+        for (int[] values : offsets) {
+            int count = counts.merge(new Key(values), 1, Integer::sum);
+            if (count > bestCount) {
+                best = values;
+                bestCount = count;
             }
         }
+        return best;
+    }
 
-        List<RoutesContainer> routeContainers = new ArrayList<>();
-
-        int routeID = 0;
+    /**
+     * Groups the trips with the same stops and service into patterns, the trips of a pattern are sorted by
+     * their first departure.
+     */
+    private List<Pattern> parsePatterns() {
+        // stops are (stopId<<32 | postId) of every stop of the route
+        record Entry(long[] stops, int serviceId) {
+
+            static Entry of(Route route, StopTimes stopTimes, int serviceId) {
+                long[] stops = new long[route.length()];
+                for (int i = 0; i < stops.length; i++) {
+                    int row = route.startPos() + i;
+                    stops[i] = ((long) stopTimes.stopId(row) << 32) | (stopTimes.postId(row) & 0xFFFFFFL);
+                }
+                return new Entry(stops, serviceId);
+            }
 
-        for (List<List<RouteStop>> value : map.values()) {
-            value.sort(Comparator.comparing(l -> l.getFirst().departure()));
+            /**
+             * Orders by the stops first, so the same pattern of different services ends up together.
+             */
+            static int compare(Entry a, Entry b) {
+                int result = Arrays.compare(a.stops, b.stops);
+                return result != 0 ? result : Integer.compare(a.serviceId, b.serviceId);
+            }
 
-            List<RouteStopsContainer> containers = new ArrayList<>();
-            for (int i = 0; i < value.getFirst().size(); i++) {
-                short stopId = value.getFirst().get(i).stopId();
-                short postId = value.getFirst().get(i).postId();
-                int serviceId = trips.get(value.getFirst().get(i).tripId()).serviceId();
+            @Override
+            public int hashCode() {
+                return 31 * Arrays.hashCode(stops) + serviceId;
+            }
 
-                Time startTime = value.getFirst().get(i).departure();
-                long[] stops = new long[value.size()-1];
+            @Override
+            public boolean equals(Object object) {
+                if (!(object instanceof Entry(long[] otherStops, int id))) return false;
+                return Arrays.equals(stops, otherStops) && this.serviceId == id;
+            }
+        }
 
-                for (int j = 1; j < value.size(); j++) {
-                    List<RouteStop> routeStops = value.get(j);
-                    RouteStop stop = routeStops.get(i);
+        Map<Entry, List<Route>> map = new HashMap<>();
 
-                    if (stop.stopId() != stopId || stop.postId() != postId) {
-                        for (List<RouteStop> r : value) {
-                            System.out.println(r.stream().map(s -> (s.stopId()+":"+s.postId())).toList());
-                        }
-                        throw new IllegalStateException();
-                    }
+        for (Route route : routes) {
+            Entry entry = Entry.of(route, stopTimes, trips.get(route.tripId).serviceId);
 
-                    long data = ((long) stop.id()<<32) | (stop.departure().getMinsDiff(startTime) & 0xFFFFFFFFL);
+            map.computeIfAbsent(entry, k -> new ArrayList<>()).add(route);
+        }
 
-                    stops[j-1] = data;
-                }
+        // canonical order instead of the hash order, the pattern indices follow it
+        List<Entry> entries = new ArrayList<>(map.keySet());
+        entries.sort(Entry::compare);
 
-                RouteStopsContainer container = new RouteStopsContainer(stopId, postId, (short) serviceId, startTime, stops);
-                containers.add(container);
-            }
+        List<Pattern> patterns = new ArrayList<>();
+        for (Entry entry : entries) {
+            List<Route> value = map.get(entry);
+            value.sort(Comparator.comparingInt(r -> stopTimes.departure(r.startPos())));
 
-            routeContainers.add(new RoutesContainer(routeID++, containers));
+            patterns.add(new Pattern(entry.serviceId(), value));
         }
 
-        return routeContainers;
+        return patterns;
     }
 
+    /**
+     * A trip, its stops are the rows {@code [startPos, startPos + length)} of the {@link StopTimes}.
+     */
     public static final class Route {
         private final int tripId;
         private final int startPos;
-        private final List<RouteStop> stops;
         private int length = -1;
 
         public Route(int tripId, int startPos) {
             this.tripId = tripId;
             this.startPos = startPos;
-            this.stops = new ArrayList<>();
         }
 
         public int tripId() {
@@ -401,43 +593,10 @@ public class TripParser extends Parser {
 
 
 
-    private record RouteStop(int id, int tripId, short stopId, short postId, int sequence,
-                             Time arrival, Time departure) {
-    }
-
-    public record Time(int hours, int minutes, int second) implements Comparable<Time> {
-
-        public static Time parse(String time) {
-            String[] parts = time.split(":");
-
-            int hours = Integer.parseInt(parts[0]);
-            int minutes = Integer.parseInt(parts[1]);
-            int second = Integer.parseInt(parts[2]);
-
-            return new Time(hours, minutes, second);
-        }
-
-
-        public int getMinsDiff(Time other) {
-            return (hours - other.hours) * 60 + (minutes - other.minutes);
-        }
-
-        @Override
-        public int compareTo(Time o) {
-            if (hours == o.hours) {
-                return minutes - o.minutes;
-            }
-            return hours - o.hours;
-        }
-    }
-
-    public record RoutesContainer(int id, List<RouteStopsContainer> stops) {
-    }
-
     /**
-     * @param stops An array of packed ints in the form of {@code (routeStopId<<32 | minOffset)}
+     * Trips that stop at the same stops (and posts) on the same service.
      */
-    public record RouteStopsContainer(short stopId, short postId, short serviceId, Time startTime, long[] stops) {
+    private record Pattern(int serviceId, List<Route> routes) {
     }
 
 
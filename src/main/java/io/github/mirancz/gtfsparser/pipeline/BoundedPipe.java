@@ -0,0 +1,215 @@
+package io.github.mirancz.gtfsparser.pipeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands bytes from one stage to the next through a bounded queue of chunks.
+ * The producer blocks once {@code capacity} chunks are waiting, so a slow consumer bounds the memory in between.
+ * <p>
+ * Meant for exactly one producer and one consumer thread. The counters are written by one of them each and
+ * should only be read once both are done.
+ */
+public class BoundedPipe {
+
+    private static final byte[] END = new byte[0];
+    private static final byte[] FAILED = new byte[0];
+
+    private final String name;
+    private final int capacity;
+    private final int chunkSize;
+    private final BlockingQueue<byte[]> queue;
+
+    private volatile Throwable failure;
+
+    private long bytes;
+    private long chunks;
+    private long depthSum;
+    private int maxDepth;
+    private long producerWaitNanos;
+    private long consumerWaitNanos;
+
+    public BoundedPipe(String name, int capacity, int chunkSize) {
+        this.name = name;
+        this.capacity = capacity;
+        this.chunkSize = chunkSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the producing end, closing it signals the end of the data
+     */
+    public OutputStream sink() {
+        return new Sink();
+    }
+
+    /**
+     * @return the consuming end, throws an {@link IOException} once the producer {@link #fail failed}
+     */
+    public InputStream source() {
+        return new Source();
+    }
+
+    /**
+     * Propagates a failure of the producer to the consumer.
+     */
+    public void fail(Throwable t) {
+        failure = t;
+        // the data is useless now, make sure there is room for the marker
+        queue.clear();
+        queue.offer(FAILED);
+    }
+
+    private void put(byte[] chunk) throws IOException {
+        long start = System.nanoTime();
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(name);
+        }
+        producerWaitNanos += System.nanoTime() - start;
+
+        if (chunk == END) return;
+
+        int depth = queue.size();
+        depthSum += depth;
+        maxDepth = Math.max(maxDepth, depth);
+        bytes += chunk.length;
+        chunks++;
+    }
+
+    private byte[] take() throws IOException {
+        long start = System.nanoTime();
+        byte[] chunk;
+        try {
+            chunk = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(name);
+        }
+        consumerWaitNanos += System.nanoTime() - start;
+
+        if (chunk == FAILED) {
+            queue.offer(FAILED);
+            throw new IOException("Producer of '" + name + "' failed", failure);
+        }
+        return chunk;
+    }
+
+    public String getStats() {
+        return String.format(Locale.ROOT, "%s: %.1f MB in %d chunks, queue depth avg %.1f max %d/%d, producer blocked %.2f s, consumer blocked %.2f s",
+                name, bytes / 1e6, chunks, chunks == 0 ? 0.0 : (double) depthSum / chunks, maxDepth, capacity,
+                producerWaitNanos / 1e9, consumerWaitNanos / 1e9);
+    }
+
+    private class Sink extends OutputStream {
+
+        private byte[] chunk = new byte[chunkSize];
+        private int size;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            chunk[size++] = (byte) b;
+            if (size == chunk.length) flushChunk();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, chunk.length - size);
+                System.arraycopy(b, off, chunk, size, n);
+                size += n;
+                off += n;
+                len -= n;
+
+                if (size == chunk.length) flushChunk();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (size > 0) flushChunk();
+        }
+
+        private void flushChunk() throws IOException {
+            if (size == chunk.length) {
+                put(chunk);
+                chunk = new byte[chunkSize];
+            } else {
+                put(Arrays.copyOf(chunk, size));
+            }
+            size = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+
+            flush();
+            put(END);
+        }
+    }
+
+    private class Source extends InputStream {
+
+        private byte[] chunk;
+        private int position;
+
+        private boolean ensureAvailable() throws IOException {
+            if (chunk == END) return false;
+
+            while (chunk == null || position == chunk.length) {
+                chunk = take();
+                position = 0;
+                if (chunk == END) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureAvailable()) return -1;
+            return chunk[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!ensureAvailable()) return -1;
+
+            int n = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        /**
+         * Skips the rest of the data, so the producer does not stay blocked on a full queue.
+         */
+        @Override
+        public void close() throws IOException {
+            while (ensureAvailable()) {
+                position = chunk.length;
+            }
+        }
+
+        @Override
+        public int available() {
+            return chunk == null || chunk == END ? 0 : chunk.length - position;
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package io.github.mirancz.gtfsparser.pipeline;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One step of the pipeline running on its own thread.
+ * <p>
+ * If the task fails, the failure is propagated to the given output pipes (so the next stage does not wait forever)
+ * and rethrown from {@link #join()}.
+ */
+public class Stage {
+
+    private final String name;
+    private final Thread thread;
+    private final AtomicLong bytes = new AtomicLong();
+
+    private Throwable failure;
+    private long startNanos;
+    private long endNanos;
+
+    private Stage(String name, Task task, List<BoundedPipe> outputs) {
+        this.name = name;
+        this.thread = new Thread(() -> {
+            startNanos = System.nanoTime();
+            try {
+                task.run(this);
+            } catch (Throwable t) {
+                failure = t;
+                for (BoundedPipe output : outputs) {
+                    output.fail(t);
+                }
+            } finally {
+                endNanos = System.nanoTime();
+            }
+        }, name);
+        this.thread.setDaemon(true);
+    }
+
+    public static Stage start(String name, Task task, BoundedPipe... outputs) {
+        Stage stage = new Stage(name, task, List.of(outputs));
+        stage.thread.start();
+        return stage;
+    }
+
+    public void join() throws Exception {
+        thread.join();
+
+        if (failure instanceof Exception e) throw e;
+        if (failure instanceof Error e) throw e;
+    }
+
+    /**
+     * @return the stream that counts all bytes read through it towards the throughput of this stage
+     */
+    public InputStream counted(InputStream input) {
+        return new FilterInputStream(input) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) bytes.incrementAndGet();
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) bytes.addAndGet(n);
+                return n;
+            }
+        };
+    }
+
+    /**
+     * @return the stream that counts all bytes written through it towards the throughput of this stage
+     */
+    public OutputStream counted(OutputStream output) {
+        return new FilterOutputStream(output) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytes.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytes.addAndGet(len);
+            }
+        };
+    }
+
+    /**
+     * Only valid after {@link #join()}.
+     */
+    public String getStats() {
+        double seconds = (endNanos - startNanos) / 1e9;
+        double megabytes = bytes.get() / 1e6;
+
+        return String.format(Locale.ROOT, "%s: %.1f MB in %.2f s (%.1f MB/s)",
+                name, megabytes, seconds, seconds == 0 ? 0.0 : megabytes / seconds);
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        void run(Stage stage) throws Exception;
+    }
+
+}
@@ -0,0 +1,80 @@
+package io.github.mirancz.gtfsparser.routing;
+
+import io.github.mirancz.gtfsparser.reader.GtfsData;
+import io.github.mirancz.gtfsparser.reader.ServiceDaysView;
+import io.github.mirancz.gtfsparser.reader.routing.Timetable;
+import io.github.mirancz.gtfsparser.reader.routing.TravelTimeMatrix;
+import io.github.mirancz.gtfsparser.util.CheckedOutputStream;
+import io.github.mirancz.gtfsparser.util.ContainerWriter;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the {@code travel_times} file, an XZ compressed container with a section of the travel times between every
+ * two stops for every reference time, named by the time ({@code 2026-01-05T07:30}). The layout of the sections is
+ * described by {@link io.github.mirancz.gtfsparser.reader.TravelTimesView}.
+ */
+public class TravelTimeFile {
+
+    private static final int MAX_TRANSFERS = 8;
+
+    /**
+     * @param file              written from scratch, left incomplete if this fails
+     * @param sectionBufferSize see {@link ContainerWriter#openSection}
+     * @return stats of the computation, for the output of the run
+     * @throws IllegalArgumentException if a time is out of the calendar, before anything is computed or written
+     */
+    public static String write(Path file, ByteBuffer container, List<LocalDateTime> times, int preset, int sectionBufferSize) throws IOException {
+        GtfsData data = GtfsData.wrap(container);
+
+        Timetable timetable = Timetable.of(data);
+        TravelTimeMatrix matrix = new TravelTimeMatrix(timetable, MAX_TRANSFERS);
+        ServiceDaysView days = data.serviceDays();
+        int stopCount = data.stopIdCount();
+        long nanos = 0;
+
+        int[] dayIndices = new int[times.size()];
+        for (int i = 0; i < times.size(); i++) {
+            dayIndices[i] = days.dayIndex(times.get(i).toLocalDate());
+            if (dayIndices[i] == -1) {
+                throw new IllegalArgumentException("Reference time out of the calendar (" + days.firstDate() + ", "
+                        + days.dayCount() + " days): " + times.get(i));
+            }
+        }
+
+        try (XZOutputStream xz = new XZOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), new LZMA2Options(preset))) {
+            ContainerWriter writer = new ContainerWriter(xz, sectionBufferSize);
+
+            for (int i = 0; i < times.size(); i++) {
+                LocalDateTime time = times.get(i);
+                int day = dayIndices[i];
+                int minutes = time.getHour() * 60 + time.getMinute();
+
+                long start = System.nanoTime();
+                byte[] travelTimes = matrix.compute(stopCount, day, minutes);
+                nanos += System.nanoTime() - start;
+
+                try (CheckedOutputStream os = writer.openSection(time.toString())) {
+                    os.writeInt(stopCount);
+                    os.writeInt(time.getYear() << 16 | time.getMonthValue() << 8 | time.getDayOfMonth());
+                    os.writeShort(minutes);
+                    os.write(travelTimes);
+                }
+            }
+
+            writer.finish();
+        }
+
+        return String.format(Locale.ROOT, "%d matrices of %d stops in %.2f s", times.size(), stopCount, nanos / 1e9);
+    }
+
+}
@@ -0,0 +1,136 @@
+package io.github.mirancz.gtfsparser.util;
+
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits the input into blocks of a fixed size and compresses every block as its own XZ stream on a thread pool.
+ * <p>
+ * The streams are written in order one after another. Concatenated streams are a valid .xz file and
+ * {@link org.tukaani.xz.XZInputStream} decodes them as a single one, so readers do not need to change.
+ * Every block starts with an empty dictionary, so smaller blocks trade compression ratio for parallelism.
+ */
+public class BlockXZCompressor {
+
+    private final int blockSize;
+    private final int preset;
+    private final int threads;
+
+    private final List<Block> writtenBlocks = new ArrayList<>();
+
+    private long inputBytes;
+    private long outputBytes;
+    private int blocks;
+    private long nanos;
+
+    public BlockXZCompressor(int blockSize, int preset, int threads) {
+        if (blockSize <= 0) throw new IllegalArgumentException("Block size has to be positive: " + blockSize);
+        if (threads <= 0) throw new IllegalArgumentException("Thread count has to be positive: " + threads);
+        if (preset < LZMA2Options.PRESET_MIN || preset > LZMA2Options.PRESET_MAX) {
+            throw new IllegalArgumentException("Unsupported XZ preset: " + preset);
+        }
+
+        this.blockSize = blockSize;
+        this.preset = preset;
+        this.threads = threads;
+    }
+
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+
+        // at most one block waiting to be written per thread, so memory stays around 2 * threads * blockSize
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            try {
+                while (true) {
+                    byte[] block = input.readNBytes(blockSize);
+                    if (block.length == 0 && blocks > 0) break;
+
+                    inputBytes += block.length;
+                    blocks++;
+                    pending.add(executor.submit(() -> compressBlock(block)));
+
+                    if (pending.size() > threads) {
+                        write(pending.poll(), output);
+                    }
+                    if (block.length < blockSize) break;
+                }
+
+                while (!pending.isEmpty()) {
+                    write(pending.poll(), output);
+                }
+            } catch (Throwable e) {
+                // close() waits for every submitted block, drop the queued ones and interrupt the running ones first
+                executor.shutdownNow();
+                throw e;
+            }
+        }
+
+        nanos = System.nanoTime() - start;
+    }
+
+    private byte[] compressBlock(byte[] block) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream(block.length / 4);
+
+        try (XZOutputStream xz = new XZOutputStream(os, new LZMA2Options(preset))) {
+            xz.write(block);
+        }
+        return os.toByteArray();
+    }
+
+    private void write(Future<byte[]> block, OutputStream output) throws IOException {
+        byte[] compressed;
+        try {
+            compressed = block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) throw cause;
+            throw new IOException(e.getCause());
+        }
+
+        writtenBlocks.add(new Block((long) writtenBlocks.size() * blockSize, outputBytes, compressed.length));
+
+        output.write(compressed);
+        outputBytes += compressed.length;
+    }
+
+    /**
+     * Only valid once {@link #compress} returned.
+     */
+    public List<Block> getBlocks() {
+        return Collections.unmodifiableList(writtenBlocks);
+    }
+
+    /**
+     * @return index of the block containing the given offset of the uncompressed data
+     */
+    public int getBlockIndex(long offset) {
+        return Math.toIntExact(Math.min(offset / blockSize, writtenBlocks.size() - 1));
+    }
+
+    /**
+     * @param offset           offset of the block in the uncompressed data
+     * @param compressedOffset offset of the XZ stream of the block in the compressed data
+     */
+    public record Block(long offset, long compressedOffset, int compressedSize) {
+    }
+
+    public String getStats() {
+        return String.format(Locale.ROOT, "xz: %d blocks of %.1f MB, preset %d, %d threads, %.1f MB -> %.1f MB (ratio %.3f) in %.2f s",
+                blocks, blockSize / 1e6, preset, threads, inputBytes / 1e6, outputBytes / 1e6,
+                inputBytes == 0 ? 0.0 : (double) outputBytes / inputBytes, nanos / 1e9);
+    }
+
+}
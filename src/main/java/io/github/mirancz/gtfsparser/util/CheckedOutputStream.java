@@ -44,6 +44,30 @@ public class CheckedOutputStream implements AutoCloseable{
         os.write(v);
     }
 
+    /**
+     * Unsigned LEB128, 7 bits per byte with the highest bit set on all but the last byte.
+     */
+    public void writeVarInt(int v) throws IOException {
+        if (v < 0) throw new IllegalStateException();
+
+        writeVarInt0(v);
+    }
+
+    /**
+     * Zigzag encoded {@link #writeVarInt varint}, so small negative values stay short as well.
+     */
+    public void writeSignedVarInt(int v) throws IOException {
+        writeVarInt0((v << 1) ^ (v >> 31));
+    }
+
+    private void writeVarInt0(int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            os.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        os.write(v);
+    }
+
     public void writeDouble(double v) throws IOException {
         os.writeDouble(v);
     }
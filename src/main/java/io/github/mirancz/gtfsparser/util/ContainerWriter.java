@@ -0,0 +1,84 @@
+package io.github.mirancz.gtfsparser.util;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the data container, a series of {@code [boolean true, name, length, bytes]} sections ended by {@code false},
+ * and remembers where the data of every section starts so that readers can seek to it.
+ */
+public class ContainerWriter {
+
+    private final DataOutputStream output;
+    private final int sectionBufferSize;
+    private final List<Section> sections = new ArrayList<>();
+
+    /**
+     * @param sectionBufferSize see {@link #openSection}
+     */
+    public ContainerWriter(OutputStream output, int sectionBufferSize) {
+        this.output = new DataOutputStream(output);
+        this.sectionBufferSize = sectionBufferSize;
+    }
+
+    /**
+     * Several sections can be open at once and the container needs the length up front, so each section
+     * is collected first. Only {@code sectionBufferSize} bytes of it are kept in memory, the rest spills to a
+     * temporary file. The section is written when the returned stream is closed.
+     */
+    public CheckedOutputStream openSection(String name) {
+        SpillingOutputStream os = newSectionBuffer();
+
+        return new CheckedOutputStream(os) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                    writeSection(name, os);
+                } finally {
+                    os.delete();
+                }
+            }
+        };
+    }
+
+    public SpillingOutputStream newSectionBuffer() {
+        return new SpillingOutputStream(sectionBufferSize);
+    }
+
+    public synchronized void writeSection(String name, SpillingOutputStream data) throws IOException {
+        output.writeBoolean(true);
+
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+
+        output.writeInt(Math.toIntExact(data.size()));
+        sections.add(new Section(name, output.size(), data.size()));
+        data.writeTo(output);
+    }
+
+    public synchronized void finish() throws IOException {
+        output.writeBoolean(false);
+        output.close();
+    }
+
+    /**
+     * @return the sections in the order they were written
+     */
+    public synchronized List<Section> getSections() {
+        return Collections.unmodifiableList(new ArrayList<>(sections));
+    }
+
+    /**
+     * @param offset position of the first byte of the section data in the uncompressed container
+     */
+    public record Section(String name, long offset, long length) {
+    }
+
+}
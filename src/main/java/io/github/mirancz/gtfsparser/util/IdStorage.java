@@ -3,8 +3,10 @@ package io.github.mirancz.gtfsparser.util;
 import io.github.mirancz.gtfsparser.Main;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 public class IdStorage {
 
@@ -16,20 +18,19 @@ public class IdStorage {
         STOP = load(Main.getStopMapsFile());
     }
 
+    /**
+     * Reads the whole file at once, the format is the one written by {@link MappingIndexer#write}.
+     */
     private static MappingIndexer load(File file) {
-        if (!file.exists()) return new MappingIndexer(new HashMap<>());
+        if (!file.exists()) return new MappingIndexer(new int[0]);
 
-        try (DataInputStream is = new DataInputStream(new FileInputStream(file))) {
+        try {
+            IntBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).asIntBuffer();
 
-            int size = is.readInt();
+            int[] ids = new int[buffer.get()];
+            buffer.get(ids);
 
-            Map<Integer, Integer> map = new HashMap<>();
-
-            for (int i = 0; i < size; i++) {
-                map.put(is.readInt(), i);
-            }
-
-            return new MappingIndexer(map);
+            return new MappingIndexer(ids);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -40,31 +41,99 @@ public class IdStorage {
         int getId(int original);
     }
 
+    /**
+     * Maps ids to consecutive indices, new ids get the next free index.
+     * <p>
+     * Backed by an open addressing (linear probing) table of primitive ints, so a lookup neither boxes nor allocates.
+     */
     public static class MappingIndexer implements Indexer {
 
-        private final Map<Integer, Integer> idToIndex;
-        private int ID;
+        private static final int EMPTY = -1;
+
+        private int[] keys;
+        private int[] values;
+        private int mask;
+
+        /**
+         * index -> original id
+         */
+        private int[] ids;
+        private int size;
+
+        /**
+         * @param initial original ids in the order of their indices
+         */
+        MappingIndexer(int[] initial) {
+            this.ids = Arrays.copyOf(initial, Math.max(16, initial.length));
+
+            allocate(tableSizeFor(ids.length));
+            for (int id : initial) {
+                getId(id);
+            }
+        }
+
+        private static int tableSizeFor(int entries) {
+            // keep the load factor at most 0.5
+            return Integer.highestOneBit(Math.max(8, entries) * 2 - 1) << 1;
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, EMPTY);
+            mask = capacity - 1;
+        }
 
-        private MappingIndexer(Map<Integer, Integer> initial) {
-            this.idToIndex = initial;
-            this.ID = initial.size();
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
         }
 
-        public int getId(int original) {
-            return idToIndex.computeIfAbsent(original, k -> ID++);
+        public synchronized int getId(int original) {
+            int slot = hash(original) & mask;
+            while (values[slot] != EMPTY) {
+                if (keys[slot] == original) return values[slot];
+                slot = (slot + 1) & mask;
+            }
+
+            int id = size++;
+            keys[slot] = original;
+            values[slot] = id;
+
+            if (id == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[id] = original;
+
+            if (size * 2 > keys.length) {
+                rehash();
+            }
+
+            return id;
         }
 
-        public void write(CheckedOutputStream os) throws IOException {
-            os.writeInt(idToIndex.size());
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
 
-            int[] ids = new int[idToIndex.size()];
+            allocate(keys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] == EMPTY) continue;
 
-            for (Map.Entry<Integer, Integer> entry : idToIndex.entrySet()) {
-                ids[entry.getValue()] = entry.getKey();
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
             }
+        }
+
+        public synchronized void write(CheckedOutputStream os) throws IOException {
+            os.writeInt(size);
 
-            for (int id : ids) {
-                os.writeInt(id);
+            for (int i = 0; i < size; i++) {
+                os.writeInt(ids[i]);
             }
         }
 
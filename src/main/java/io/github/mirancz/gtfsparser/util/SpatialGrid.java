@@ -0,0 +1,155 @@
+package io.github.mirancz.gtfsparser.util;
+
+import java.io.IOException;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform grid over points in fixed point coordinates (microdegrees), with roughly square cells sized so that a cell
+ * holds a few points on average. The points of every cell are stored together, so the points near a position are
+ * found by looking at the cells around it only.
+ */
+public class SpatialGrid {
+
+    private static final double MICRODEGREES = 1e6;
+    private static final double METERS_PER_DEGREE = 6_371_000 * Math.PI / 180;
+    private static final double MIN_CELL_METERS = 50;
+
+    private final int[] lats;
+    private final int[] lons;
+
+    private final int minLat;
+    private final int minLon;
+    private final int cellLat;
+    private final int cellLon;
+    private final int columns;
+    private final int rows;
+    private final double lonScale;
+
+    /**
+     * start of the points of every cell (row by row) in {@link #points}, one more at the end
+     */
+    private final int[] cellStarts;
+    /**
+     * indices of the points ordered by cell, then by index
+     */
+    private final int[] points;
+
+    /**
+     * @param lats          microdegrees, see {@link #toFixed}
+     * @param lons          microdegrees
+     * @param pointsPerCell the average number of points of a cell the grid is sized for
+     */
+    public SpatialGrid(int[] lats, int[] lons, int pointsPerCell) {
+        this.lats = lats;
+        this.lons = lons;
+
+        int n = lats.length;
+        int minLat = Integer.MAX_VALUE, maxLat = Integer.MIN_VALUE;
+        int minLon = Integer.MAX_VALUE, maxLon = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            minLat = Math.min(minLat, lats[i]);
+            maxLat = Math.max(maxLat, lats[i]);
+            minLon = Math.min(minLon, lons[i]);
+            maxLon = Math.max(maxLon, lons[i]);
+        }
+        if (n == 0) {
+            minLat = maxLat = minLon = maxLon = 0;
+        }
+
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.lonScale = Math.cos(Math.toRadians((minLat + (double) maxLat) / 2 / MICRODEGREES));
+
+        double height = (maxLat - minLat) / MICRODEGREES * METERS_PER_DEGREE;
+        double width = (maxLon - minLon) / MICRODEGREES * METERS_PER_DEGREE * lonScale;
+        double cellMeters = Math.max(MIN_CELL_METERS, Math.sqrt(width * height * pointsPerCell / Math.max(1, n)));
+
+        this.cellLat = (int) Math.ceil(cellMeters / METERS_PER_DEGREE * MICRODEGREES);
+        this.cellLon = (int) Math.ceil(cellMeters / (METERS_PER_DEGREE * lonScale) * MICRODEGREES);
+        this.columns = (maxLon - minLon) / cellLon + 1;
+        this.rows = (maxLat - minLat) / cellLat + 1;
+
+        // counting sort by cell, stable so the points of a cell keep their order
+        cellStarts = new int[columns * rows + 1];
+        for (int i = 0; i < n; i++) {
+            cellStarts[cell(i) + 1]++;
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        points = new int[n];
+        int[] next = new int[columns * rows];
+        System.arraycopy(cellStarts, 0, next, 0, next.length);
+        for (int i = 0; i < n; i++) {
+            points[next[cell(i)]++] = i;
+        }
+    }
+
+    public static int toFixed(double degrees) {
+        return Math.toIntExact(Math.round(degrees * MICRODEGREES));
+    }
+
+    private int cell(int point) {
+        return (lats[point] - minLat) / cellLat * columns + (lons[point] - minLon) / cellLon;
+    }
+
+    /**
+     * Equirectangular approximation, good enough for the distances within a city.
+     */
+    public double distance(int from, int to) {
+        double dLat = (lats[to] - lats[from]) / MICRODEGREES;
+        double dLon = (lons[to] - lons[from]) / MICRODEGREES * lonScale;
+        return Math.sqrt(dLat * dLat + dLon * dLon) * METERS_PER_DEGREE;
+    }
+
+    /**
+     * Passes every other point at most the distance away from the point.
+     */
+    public void forEachWithin(int point, double meters, IntConsumer consumer) {
+        int latRadius = (int) Math.ceil(meters / METERS_PER_DEGREE * MICRODEGREES);
+        int lonRadius = (int) Math.ceil(meters / (METERS_PER_DEGREE * lonScale) * MICRODEGREES);
+
+        int firstRow = Math.max(0, (lats[point] - latRadius - minLat) / cellLat);
+        int lastRow = Math.min(rows - 1, (lats[point] + latRadius - minLat) / cellLat);
+        int firstColumn = Math.max(0, (lons[point] - lonRadius - minLon) / cellLon);
+        int lastColumn = Math.min(columns - 1, (lons[point] + lonRadius - minLon) / cellLon);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int i = cellStarts[row * columns + firstColumn]; i < cellStarts[row * columns + lastColumn + 1]; i++) {
+                int other = points[i];
+                if (other != point && distance(point, other) <= meters) consumer.accept(other);
+            }
+        }
+    }
+
+    /**
+     * Writes the grid:
+     * <pre>
+     * int point count, int min lat, int min lon, int cell lat, int cell lon (microdegrees), int columns, int rows
+     * columns * rows + 1 ints, the start of the points of every cell, row by row from the south west corner
+     * per point ordered by cell: int id, int lat, int lon
+     * </pre>
+     *
+     * @param ids the id written for every point
+     */
+    public void write(CheckedOutputStream os, int[] ids) throws IOException {
+        os.writeInt(points.length);
+        os.writeInt(minLat);
+        os.writeInt(minLon);
+        os.writeInt(cellLat);
+        os.writeInt(cellLon);
+        os.writeInt(columns);
+        os.writeInt(rows);
+
+        for (int start : cellStarts) {
+            os.writeInt(start);
+        }
+        for (int point : points) {
+            os.writeInt(ids[point]);
+            os.writeInt(lats[point]);
+            os.writeInt(lons[point]);
+        }
+    }
+
+}
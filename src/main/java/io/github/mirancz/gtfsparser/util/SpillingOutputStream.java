@@ -0,0 +1,136 @@
+package io.github.mirancz.gtfsparser.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Keeps the written data in memory until it grows past the limit, after that everything goes to a temporary file.
+ * <p>
+ * Once closed, the data can be copied with {@link #writeTo} and the temporary file removed with {@link #delete},
+ * which the owner should do whether the data was used or not.
+ */
+public class SpillingOutputStream extends OutputStream {
+
+    private static final int INITIAL_BUFFER_SIZE = 1 << 13;
+
+    private final int memoryLimit;
+
+    private byte[] buffer;
+    private int count;
+    private long size;
+
+    private Path file;
+    private OutputStream fileOutput;
+
+    public SpillingOutputStream(int memoryLimit) {
+        this.memoryLimit = memoryLimit;
+        this.buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, memoryLimit)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (file == null && count == memoryLimit) {
+            spill();
+        }
+
+        if (file == null) {
+            if (count == buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(memoryLimit, buffer.length * 2));
+            }
+            buffer[count++] = (byte) b;
+        } else {
+            fileOutput.write(b);
+        }
+
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (file == null && count + len > memoryLimit) {
+            spill();
+        }
+
+        if (file == null) {
+            if (count + len > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(memoryLimit, Math.max(count + len, buffer.length * 2)));
+            }
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        } else {
+            fileOutput.write(b, off, len);
+        }
+
+        size += len;
+    }
+
+    private void spill() throws IOException {
+        file = Files.createTempFile("section", ".bin");
+        try {
+            fileOutput = new BufferedOutputStream(Files.newOutputStream(file));
+            fileOutput.write(buffer, 0, count);
+        } catch (IOException | RuntimeException e) {
+            discard(e);
+            throw e;
+        }
+
+        buffer = null;
+        count = 0;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void writeTo(OutputStream output) throws IOException {
+        if (file == null) {
+            output.write(buffer, 0, count);
+        } else {
+            Files.copy(file, output);
+        }
+    }
+
+    /**
+     * The temporary file is deleted when it cannot be closed, the data is lost then.
+     */
+    @Override
+    public void close() throws IOException {
+        if (fileOutput != null) {
+            try {
+                fileOutput.close();
+            } catch (IOException | RuntimeException e) {
+                discard(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Removes the temporary file, can be called more than once.
+     */
+    public void delete() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+        buffer = null;
+    }
+
+    private void discard(Exception cause) {
+        try {
+            if (fileOutput != null) fileOutput.close();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+
+        try {
+            delete();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+}
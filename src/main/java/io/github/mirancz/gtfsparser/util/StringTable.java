@@ -0,0 +1,102 @@
+package io.github.mirancz.gtfsparser.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Strings shared by all the sections, which refer to them by id.
+ * <p>
+ * Strings are {@link #add added} while parsing and the table is {@link #freeze frozen} once all files were parsed.
+ * The ids are the indices in the sorted table, so they do not depend on the order the parsers ran in, and only
+ * sections written after that (in {@link io.github.mirancz.gtfsparser.parsing.Parser#onFinish}) can refer to them.
+ */
+public class StringTable {
+
+    public static final StringTable GLOBAL = new StringTable();
+
+    /**
+     * Strings per front coded block, a lookup decodes at most this many strings.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    private final Map<String, String> strings = new HashMap<>();
+    private Map<String, Integer> ids;
+    private List<String> sorted;
+
+    /**
+     * @return the already added instance of an equal string, so parsers holding on to it do not keep duplicates
+     */
+    public synchronized String add(String s) {
+        if (ids != null) throw new IllegalStateException("Table is already frozen");
+
+        String existing = strings.putIfAbsent(s, s);
+        return existing == null ? s : existing;
+    }
+
+    public synchronized void freeze() {
+        if (ids != null) return;
+
+        sorted = new ArrayList<>(strings.keySet());
+        Collections.sort(sorted);
+
+        ids = new HashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            ids.put(sorted.get(i), i);
+        }
+    }
+
+    public synchronized int getId(String s) {
+        if (ids == null) throw new IllegalStateException("Table is not frozen yet");
+
+        Integer id = ids.get(s);
+        if (id == null) throw new IllegalArgumentException("String was not added: " + s);
+        return id;
+    }
+
+    /**
+     * Writes the sorted strings front coded in blocks:
+     * <pre>
+     * varint count, varint block size
+     * int offset of every block, relative to the end of the offsets
+     * per block: varint length and bytes of the first string,
+     *            then for every other string varint length of the prefix shared with the previous one,
+     *            varint length and bytes of the rest
+     * </pre>
+     * The string with id {@code i} is decoded from block {@code i / blockSize} without touching the others.
+     */
+    public synchronized void write(CheckedOutputStream os) throws IOException {
+        if (ids == null) throw new IllegalStateException("Table is not frozen yet");
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        CheckedOutputStream blocks = new CheckedOutputStream(data);
+        int[] offsets = new int[(sorted.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+
+        byte[] previous = null;
+        for (int i = 0; i < sorted.size(); i++) {
+            byte[] bytes = sorted.get(i).getBytes(StandardCharsets.UTF_8);
+
+            if (i % BLOCK_SIZE == 0) {
+                offsets[i / BLOCK_SIZE] = data.size();
+                blocks.writeVarInt(bytes.length);
+                blocks.write(bytes);
+            } else {
+                // the strings are distinct, so the mismatch is within both or at the end of the shorter one
+                int prefix = Arrays.mismatch(previous, bytes);
+                blocks.writeVarInt(prefix);
+                blocks.writeVarInt(bytes.length - prefix);
+                blocks.write(Arrays.copyOfRange(bytes, prefix, bytes.length));
+            }
+            previous = bytes;
+        }
+
+        os.writeVarInt(sorted.size());
+        os.writeVarInt(BLOCK_SIZE);
+        for (int offset : offsets) {
+            os.writeInt(offset);
+        }
+        os.write(data.toByteArray());
+    }
+
+}
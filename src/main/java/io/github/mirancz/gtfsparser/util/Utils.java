@@ -9,14 +9,14 @@ public class Utils {
 
         // format is U{stopId}Z{postId} or U{stopId}N{postId}
 
-        int zInd = stopUID.indexOf("Z");
-        int nInd = stopUID.indexOf("N");
+        int zInd = stopUID.indexOf('Z');
+        int nInd = stopUID.indexOf('N');
         int ind = Math.max(zInd, nInd);
 
         if (ind == -1) throw new IllegalArgumentException("Invalid stop UID: " + stopUID);
 
-        int stopId = Integer.parseInt(stopUID.substring(1, ind));
-        int postId = Integer.parseInt(stopUID.substring(ind + 1));
+        int stopId = Integer.parseInt(stopUID, 1, ind, 10);
+        int postId = Integer.parseInt(stopUID, ind + 1, stopUID.length(), 10);
 
         int mappedStopId = IdStorage.STOP.getId(stopId);
 
@@ -0,0 +1,26 @@
+package io.github.mirancz.gtfsparser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class DeterministicOutputTest {
+
+    @Test
+    void twoRunsWriteTheSameContainer(@TempDir Path directory) throws Exception {
+        byte[] container = TestFeed.readContainer(TestFeed.generate(directory));
+
+        assertArrayEquals(TestFeed.container(), container);
+    }
+
+    @Test
+    void concurrentRunWritesTheSameContainer(@TempDir Path directory) throws Exception {
+        byte[] container = TestFeed.readContainer(TestFeed.generate(directory, "--concurrent"));
+
+        assertArrayEquals(TestFeed.container(), container);
+    }
+
+}
@@ -0,0 +1,60 @@
+package io.github.mirancz.gtfsparser;
+
+import io.github.mirancz.gtfsparser.reader.GtfsData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailedRunTest {
+
+    @Test
+    void travelTimeOutOfTheCalendarKeepsThePublishedFiles(@TempDir Path directory) throws Exception {
+        LocalDateTime inCalendar = GtfsData.wrap(ByteBuffer.wrap(TestFeed.container())).serviceDays().firstDate().atTime(7, 30);
+        LocalDateTime outOfCalendar = inCalendar.minusDays(1);
+
+        Path docs = TestFeed.generate(directory, "--travel-times", inCalendar.toString());
+        Map<String, byte[]> published = read(docs);
+        assertTrue(published.containsKey("travel_times"));
+
+        // a smaller walk radius changes the footpaths, so the run would publish another container
+        TestFeed.Run failed = TestFeed.run(directory, "--walk-radius", "200", "--travel-times", inCalendar + "," + outOfCalendar);
+        assertNotEquals(0, failed.exitCode());
+        assertTrue(failed.output().contains("Reference time out of the calendar"), failed.output());
+
+        Map<String, byte[]> after = read(docs);
+        assertEquals(published.keySet(), after.keySet());
+        for (String file : published.keySet()) {
+            assertArrayEquals(published.get(file), after.get(file), file);
+        }
+
+        TestFeed.Run succeeded = TestFeed.run(directory, "--walk-radius", "200", "--travel-times", inCalendar.toString());
+        assertEquals(0, succeeded.exitCode(), succeeded.output());
+        assertFalse(Arrays.equals(published.get("data"), Files.readAllBytes(docs.resolve("data"))));
+        assertEquals(1, read(docs).keySet().stream().filter(file -> file.startsWith("patches/")).count());
+    }
+
+    /**
+     * @return the contents of every file by its path relative to the directory
+     */
+    private static Map<String, byte[]> read(Path directory) throws IOException {
+        Map<String, byte[]> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path file : paths.filter(Files::isRegularFile).toList()) {
+                files.put(directory.relativize(file).toString().replace('\\', '/'), Files.readAllBytes(file));
+            }
+        }
+        return files;
+    }
+
+}
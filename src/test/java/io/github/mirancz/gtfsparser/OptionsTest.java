@@ -0,0 +1,65 @@
+package io.github.mirancz.gtfsparser;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptionsTest {
+
+    @Test
+    void walkRadiusDefaultsTo400() {
+        assertEquals(400, Options.parse(new String[0]).walkRadius());
+        assertEquals(0, Options.parse(new String[]{"--walk-radius", "0"}).walkRadius());
+        assertEquals(5000, Options.parse(new String[]{"--walk-radius", "5000"}).walkRadius());
+    }
+
+    @Test
+    void rejectsWalkRadiusOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--walk-radius", "-1"}));
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--walk-radius", "5001"}));
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--walk-radius", "40000"}));
+    }
+
+    @Test
+    void rejectsCompressionSettingsOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--xz-preset", "-1"}));
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--xz-preset", "10"}));
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--xz-preset", "12"}));
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--xz-block-size", "0"}));
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--xz-block-size", "-4096"}));
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--xz-threads", "0"}));
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--section-buffer", "-1"}));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--xz-preset", "12"}));
+        assertTrue(e.getMessage().contains("--xz-preset"), e.getMessage());
+    }
+
+    @Test
+    void acceptsCompressionSettingsInRange() {
+        Options options = Options.parse(new String[]{"--xz-preset", "0", "--xz-block-size", "1", "--xz-threads", "1", "--section-buffer", "0"});
+        assertEquals(0, options.xzPreset());
+        assertEquals(1, options.xzBlockSize());
+        assertEquals(1, options.xzThreads());
+        assertEquals(0, options.sectionBufferSize());
+
+        assertEquals(9, Options.parse(new String[]{"--xz-preset", "9"}).xzPreset());
+    }
+
+    @Test
+    void rejectsNonIntegerValues() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--xz-threads", "many"}));
+        assertTrue(e.getMessage().contains("--xz-threads"), e.getMessage());
+    }
+
+    @Test
+    void concurrentRequiresInput() {
+        assertThrows(IllegalArgumentException.class, () -> Options.parse(new String[]{"--concurrent"}));
+
+        Options options = Options.parse(new String[]{"--concurrent", "--input", "gtfs.zip"});
+        assertTrue(options.concurrent());
+        assertEquals(Path.of("gtfs.zip"), options.input());
+    }
+
+}
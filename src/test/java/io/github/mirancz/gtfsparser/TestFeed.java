@@ -0,0 +1,122 @@
+package io.github.mirancz.gtfsparser;
+
+import org.tukaani.xz.XZInputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs {@link Main} over the small feed of the test resources ({@code gtfs.zip}).
+ * <p>
+ * Main keeps the ids and strings in static fields and works in {@code docs/} of the working directory, so every run
+ * gets a JVM and a directory of its own.
+ */
+public final class TestFeed {
+
+    private static byte[] container;
+
+    private TestFeed() {
+    }
+
+    /**
+     * @param directory empty directory to run in
+     * @param args      options besides {@code --input}
+     * @return the {@code docs} directory written by the run
+     */
+    public static Path generate(Path directory, String... args) throws IOException, InterruptedException {
+        Path docs = directory.resolve("docs");
+        Files.createDirectories(docs.resolve("storage"));
+        Files.write(docs.resolve("storage").resolve("posts"), new byte[0]);
+
+        try (InputStream is = TestFeed.class.getResourceAsStream("/gtfs.zip")) {
+            Files.copy(is, directory.resolve("gtfs.zip"));
+        }
+
+        Run run = run(directory, args);
+        if (run.exitCode() != 0) {
+            throw new IllegalStateException("Generating the data failed:\n" + run.output());
+        }
+
+        return docs;
+    }
+
+    /**
+     * Runs again in a directory a previous {@link #generate} run was in.
+     *
+     * @param args options besides {@code --input}
+     */
+    public static Run run(Path directory, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath(),
+                Main.class.getName(),
+                "--input", directory.resolve("gtfs.zip").toString()
+        ));
+        command.addAll(List.of(args));
+
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        return new Run(process.waitFor(), output);
+    }
+
+    /**
+     * @param output standard and error output
+     */
+    public record Run(int exitCode, String output) {
+    }
+
+    /**
+     * @return the uncompressed container of a run
+     */
+    public static byte[] readContainer(Path docs) throws IOException {
+        try (InputStream is = new XZInputStream(Files.newInputStream(docs.resolve("data")))) {
+            return is.readAllBytes();
+        }
+    }
+
+    /**
+     * @return the container generated with the default options, once for all the tests
+     */
+    public static synchronized byte[] container() throws IOException, InterruptedException {
+        if (container == null) {
+            Path directory = Files.createTempDirectory("gtfs");
+            try {
+                container = readContainer(generate(directory));
+            } finally {
+                delete(directory);
+            }
+        }
+        return container;
+    }
+
+    /**
+     * @return the class path of this JVM, absolute as the run works in another directory
+     */
+    private static String classPath() {
+        return Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .map(entry -> Path.of(entry).toAbsolutePath().toString())
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+package io.github.mirancz.gtfsparser.delta;
+
+import io.github.mirancz.gtfsparser.TestFeed;
+import io.github.mirancz.gtfsparser.reader.DataPatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaTest {
+
+    @Test
+    void roundTripsEdits() throws IOException {
+        Random random = new Random(1);
+        byte[] previous = new byte[200_000];
+        random.nextBytes(previous);
+
+        byte[] current = previous;
+        for (int i = 0; i < 50; i++) {
+            current = edit(current, random);
+        }
+
+        byte[] patch = Delta.diff(previous, current);
+        assertArrayEquals(current, DataPatch.apply(previous, patch));
+        // most of the data is copied, not inserted
+        assertTrue(patch.length < current.length / 10, "patch of " + patch.length + " bytes");
+    }
+
+    @Test
+    void roundTripsTheContainer() throws Exception {
+        byte[] previous = TestFeed.container();
+        byte[] current = edit(edit(previous, new Random(2)), new Random(3));
+
+        assertArrayEquals(current, DataPatch.apply(previous, Delta.diff(previous, current)));
+        assertArrayEquals(previous, DataPatch.apply(current, Delta.diff(current, previous)));
+    }
+
+    @Test
+    void roundTripsEdgeCases() throws IOException {
+        byte[] data = new byte[100];
+        new Random(4).nextBytes(data);
+
+        assertArrayEquals(data, DataPatch.apply(data, Delta.diff(data, data)));
+        assertArrayEquals(new byte[0], DataPatch.apply(data, Delta.diff(data, new byte[0])));
+        assertArrayEquals(data, DataPatch.apply(new byte[0], Delta.diff(new byte[0], data)));
+        assertArrayEquals(new byte[5], DataPatch.apply(new byte[3], Delta.diff(new byte[3], new byte[5])));
+    }
+
+    @Test
+    void appliesCompressedPatch() throws IOException {
+        Random random = new Random(5);
+        byte[] previous = new byte[10_000];
+        random.nextBytes(previous);
+        byte[] current = edit(previous, random);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (XZOutputStream xz = new XZOutputStream(compressed, new LZMA2Options())) {
+            xz.write(Delta.diff(previous, current));
+        }
+
+        assertArrayEquals(current, DataPatch.apply(previous, new ByteArrayInputStream(compressed.toByteArray())));
+    }
+
+    @Test
+    void streamsPatchOfMappedFiles(@TempDir Path directory) throws IOException {
+        Random random = new Random(6);
+        byte[] previous = new byte[300_000];
+        random.nextBytes(previous);
+        byte[] current = edit(edit(previous, random), random);
+
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        Delta.diff(map(directory.resolve("previous"), previous), map(directory.resolve("current"), current), patch);
+
+        assertArrayEquals(Delta.diff(previous, current), patch.toByteArray());
+        assertArrayEquals(current, DataPatch.apply(previous, patch.toByteArray()));
+    }
+
+    private static ByteBuffer map(Path file, byte[] data) throws IOException {
+        Files.write(file, data);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @Test
+    void rejectsOtherVersion() {
+        byte[] previous = {1, 2, 3};
+        byte[] patch = Delta.diff(previous, new byte[]{1, 2, 3, 4});
+
+        assertThrows(IOException.class, () -> DataPatch.apply(new byte[]{1, 2, 4}, patch));
+    }
+
+    @Test
+    void rejectsTruncatedPatch() {
+        byte[] previous = new byte[1000];
+        byte[] current = Arrays.copyOf(previous, 2000);
+        current[1500] = 1;
+        byte[] patch = Delta.diff(previous, current);
+
+        assertThrows(IOException.class, () -> DataPatch.apply(previous, Arrays.copyOf(patch, patch.length - 10)));
+    }
+
+    @Test
+    void rejectsOperationsOutOfBounds() throws IOException {
+        byte[] previous = new byte[100];
+
+        // copies past the previous version
+        assertThrows(IOException.class, () -> DataPatch.apply(previous, patch(previous, 10, DataPatch.OP_COPY, 95, 10)));
+        assertThrows(IOException.class, () -> DataPatch.apply(previous, patch(previous, 10, DataPatch.OP_COPY, -1, 5)));
+        assertThrows(IOException.class, () -> DataPatch.apply(previous, patch(previous, 10, DataPatch.OP_COPY, Integer.MAX_VALUE, 10)));
+        assertThrows(IOException.class, () -> DataPatch.apply(previous, patch(previous, 10, DataPatch.OP_COPY, 0, -5)));
+        // copies and inserts past the patched length
+        assertThrows(IOException.class, () -> DataPatch.apply(previous, patch(previous, 10, DataPatch.OP_COPY, 0, 20)));
+        assertThrows(IOException.class, () -> DataPatch.apply(previous, patch(previous, 10, DataPatch.OP_INSERT, 20)));
+        assertThrows(IOException.class, () -> DataPatch.apply(previous, patch(previous, 10, DataPatch.OP_INSERT, -1)));
+        assertThrows(IOException.class, () -> DataPatch.apply(previous, patch(previous, -1)));
+    }
+
+    /**
+     * @return a patch of the previous version with the given operation, the checksum of the result is not valid
+     */
+    private static byte[] patch(byte[] previous, int currentLength, int... operation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream os = new DataOutputStream(bytes);
+
+        os.writeInt(DataPatch.MAGIC);
+        os.writeByte(DataPatch.VERSION);
+        os.writeInt(previous.length);
+        os.write(DataPatch.sha256(previous));
+        os.writeInt(currentLength);
+        os.write(new byte[32]);
+
+        if (operation.length > 0) {
+            os.writeByte(operation[0]);
+            for (int i = 1; i < operation.length; i++) {
+                os.writeInt(operation[i]);
+            }
+        }
+        os.writeByte(DataPatch.OP_END);
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the data with a random range replaced, removed, duplicated or moved
+     */
+    private static byte[] edit(byte[] data, Random random) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        int from = random.nextInt(data.length);
+        int to = Math.min(data.length, from + random.nextInt(2000));
+
+        result.write(data, 0, from);
+        switch (random.nextInt(4)) {
+            case 0 -> {
+                byte[] inserted = new byte[random.nextInt(2000)];
+                random.nextBytes(inserted);
+                result.writeBytes(inserted);
+            }
+            case 1 -> {
+            }
+            case 2 -> {
+                result.write(data, from, to - from);
+                result.write(data, from, to - from);
+            }
+            default -> {
+                result.write(data, to, data.length - to);
+                result.write(data, from, to - from);
+                return result.toByteArray();
+            }
+        }
+        result.write(data, to, data.length - to);
+        return result.toByteArray();
+    }
+
+}
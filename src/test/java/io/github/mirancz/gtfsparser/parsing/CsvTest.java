@@ -0,0 +1,106 @@
+package io.github.mirancz.gtfsparser.parsing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvTest {
+
+    @Test
+    void skipsByteOrderMarkReadOneByteAtATime() throws IOException {
+        Csv csv = Csv.parse(trickle("﻿trip_id,stop_id\n1,U1Z1\n"));
+
+        assertEquals(0, csv.columnIndex("trip_id"));
+        assertTrue(csv.next());
+        assertEquals(1, csv.getInt(0));
+        assertEquals("U1Z1", csv.getString(1));
+        assertFalse(csv.next());
+    }
+
+    @Test
+    void readsShortInput() throws IOException {
+        Csv csv = Csv.parse(trickle("a\n"));
+
+        assertEquals(0, csv.columnIndex("a"));
+        assertFalse(csv.next());
+    }
+
+    @Test
+    void keepsStrayQuoteInUnquotedField() throws IOException {
+        for (boolean trickle : new boolean[]{false, true}) {
+            Csv csv = parse("stop_id,stop_name,wheelchair\n1,Nám. 28. října \"Hlavní,1\n2,Hlavní nádraží,0\n", trickle);
+
+            assertTrue(csv.next());
+            assertEquals("Nám. 28. října \"Hlavní", csv.getString(1));
+            assertEquals(1, csv.getInt(2));
+            assertTrue(csv.next());
+            assertEquals(2, csv.getInt(0));
+            assertEquals("Hlavní nádraží", csv.getString(1));
+            assertFalse(csv.next());
+        }
+    }
+
+    @Test
+    void readsQuotedNewlinesAndEscapedQuotes() throws IOException {
+        for (boolean trickle : new boolean[]{false, true}) {
+            Csv csv = parse("id,name,note\r\n1,\"Main\r\nStreet\",x\r\n2,\"say \"\"hi\"\"\n, ok\",\"\"\r\n3,\"a,b\",\"\"\"\"\n", trickle);
+
+            assertTrue(csv.next());
+            assertEquals("Main\r\nStreet", csv.getString(1));
+            assertEquals("x", csv.getString(2));
+            assertTrue(csv.next());
+            assertEquals(2, csv.getInt(0));
+            assertEquals("say \"hi\"\n, ok", csv.getString(1));
+            assertEquals("", csv.getString(2));
+            assertTrue(csv.next());
+            assertEquals("a,b", csv.getString(1));
+            assertEquals("\"", csv.getString(2));
+            assertFalse(csv.next());
+        }
+    }
+
+    @Test
+    void parsesTimes() throws IOException {
+        Csv csv = Csv.parse(new ByteArrayInputStream("time\n6:28:00\n25:01:02\n0:00:00\n".getBytes(StandardCharsets.UTF_8)));
+        Csv.TimeColumn time = csv.timeColumn("time");
+
+        int[] expected = {6 * 3600 + 28 * 60, 25 * 3600 + 60 + 2, 0};
+        for (int seconds : expected) {
+            assertTrue(csv.next());
+            assertEquals(seconds, time.getSeconds());
+        }
+    }
+
+    @Test
+    void rejectsTimesWithoutThreeParts() throws IOException {
+        String[] invalid = {"6", "6:28", "6:28:00:00", ":28:00", "6::00", "6:28:", "6:2a:00", "-6:28:00"};
+        Csv csv = Csv.parse(new ByteArrayInputStream(("time\n" + String.join("\n", invalid) + "\n").getBytes(StandardCharsets.UTF_8)));
+
+        for (String time : invalid) {
+            assertTrue(csv.next());
+            assertThrows(NumberFormatException.class, () -> csv.getTime(0), time);
+        }
+    }
+
+    private static Csv parse(String data, boolean trickle) throws IOException {
+        return Csv.parse(trickle ? trickle(data) : new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return a stream handing out a single byte per read
+     */
+    private static InputStream trickle(String data) {
+        return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+
+}
@@ -0,0 +1,111 @@
+package io.github.mirancz.gtfsparser.parsing;
+
+import io.github.mirancz.gtfsparser.TestFeed;
+import io.github.mirancz.gtfsparser.reader.FootpathsView;
+import io.github.mirancz.gtfsparser.reader.GtfsData;
+import io.github.mirancz.gtfsparser.util.SpatialGrid;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StopParserTest {
+
+    /**
+     * the default --walk-radius the test feed is generated with
+     */
+    private static final int WALK_RADIUS = 400;
+
+    @Test
+    void footpathsConnectAllPostsWithinTheRadius() throws Exception {
+        GtfsData data = GtfsData.wrap(ByteBuffer.wrap(TestFeed.container()));
+        FootpathsView footpaths = data.footpaths();
+        List<String[]> posts = readPosts(data);
+        assertEquals(posts.size(), footpaths.postCount());
+
+        int[] lats = new int[posts.size()];
+        int[] lons = new int[posts.size()];
+        int[] indices = new int[posts.size()];
+        for (int i = 0; i < posts.size(); i++) {
+            String[] post = posts.get(i);
+            lats[i] = SpatialGrid.toFixed(Double.parseDouble(post[2]));
+            lons[i] = SpatialGrid.toFixed(Double.parseDouble(post[3]));
+            indices[i] = footpaths.postIndex(Integer.parseInt(post[0]), Integer.parseInt(post[1]));
+            assertNotEquals(-1, indices[i], "post " + String.join(" ", post));
+        }
+        SpatialGrid distances = new SpatialGrid(lats, lons, 1);
+
+        int count = 0;
+        for (int i = 0; i < posts.size(); i++) {
+            // index walked to -> seconds
+            Map<Integer, Integer> expected = new TreeMap<>();
+            for (int j = 0; j < posts.size(); j++) {
+                double meters = distances.distance(i, j);
+                if (i != j && meters <= WALK_RADIUS) {
+                    expected.put(indices[j], (int) Math.ceil(meters * 1.3 / 1.4));
+                }
+            }
+
+            Map<Integer, Integer> actual = new TreeMap<>();
+            int post = indices[i];
+            int previous = -1;
+            for (int footpath = footpaths.firstFootpath(post); footpath < footpaths.endFootpath(post); footpath++) {
+                assertTrue(footpaths.target(footpath) > previous, "targets are sorted");
+                previous = footpaths.target(footpath);
+                actual.put(footpaths.target(footpath), footpaths.walkingSeconds(footpath));
+            }
+
+            assertEquals(expected, actual, "from " + String.join(" ", posts.get(i)));
+            count += actual.size();
+        }
+
+        assertTrue(count > posts.size(), "footpaths " + count);
+    }
+
+    /**
+     * @return stop id, post id, lat and lon of every row of {@code stops.txt}, the stop ids mapped as in the container
+     */
+    private static List<String[]> readPosts(GtfsData data) throws IOException {
+        ByteBuffer mapping = data.getSection("stop_mapping");
+        Map<Integer, Integer> stopIds = new HashMap<>();
+        for (int i = 0; i < mapping.getInt(0); i++) {
+            stopIds.put(mapping.getInt(4 + 4 * i), i);
+        }
+
+        List<String[]> posts = new ArrayList<>();
+        try (InputStream is = StopParserTest.class.getResourceAsStream("/gtfs.zip"); ZipInputStream zip = new ZipInputStream(is)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.getName().equals("stops.txt")) continue;
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(zip, StandardCharsets.UTF_8));
+                reader.readLine();
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // U{stop id}Z{post id},name,parent station,lat,lon where only the name can be quoted
+                    String[] columns = line.split(",");
+                    String[] uid = columns[0].substring(1).split("[ZN]");
+                    int stopId = stopIds.get(Integer.parseInt(uid[0]));
+
+                    posts.add(new String[]{String.valueOf(stopId), uid[1], columns[columns.length - 2], columns[columns.length - 1]});
+                }
+            }
+        }
+        return posts;
+    }
+
+}
@@ -0,0 +1,144 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import io.github.mirancz.gtfsparser.util.CheckedOutputStream;
+import io.github.mirancz.gtfsparser.util.ContainerWriter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeparturesViewTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2026, 10, 19);
+
+    private static final int MONDAY_ONLY = 1;
+    private static final int TUESDAY_ONLY = 2;
+    private static final int DAILY = 3;
+
+    /**
+     * departure and service of the entries of the single board, sorted by departure
+     */
+    private static final int[][] ENTRIES = {
+            {300, TUESDAY_ONLY},
+            {600, DAILY},
+            {1410, MONDAY_ONLY},
+            {1450, MONDAY_ONLY},
+            {1470, DAILY},
+            {1500, TUESDAY_ONLY},
+    };
+
+    private static DeparturesView departures;
+    private static ServiceDaysView days;
+    private static int board;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        GtfsData data = container();
+        departures = data.departures();
+        days = data.serviceDays();
+        board = departures.board(5, 1);
+    }
+
+    @Test
+    void includesPreviousServiceDayAfterMidnight() {
+        // 24:10 and 24:30 of Monday, then Tuesday's own trips
+        assertDepartures(MONDAY.plusDays(1), 0, 10, 30, 300, 600, 1470, 1500);
+        assertDepartures(MONDAY.plusDays(1), 20, 30, 300, 600, 1470, 1500);
+        assertDepartures(MONDAY.plusDays(1), 1460, 1470, 1500);
+    }
+
+    @Test
+    void singleServiceDayMissesTripsAfterMidnight() {
+        int entry = departures.nextDeparture(board, 10);
+        assertEquals(300, departures.departure(entry));
+    }
+
+    @Test
+    void limitsToTheArrayLength() {
+        int[] entries = new int[2];
+        int[] times = new int[2];
+
+        assertEquals(2, departures.nextDepartures(board, days, MONDAY.plusDays(1), 0, entries, times));
+        assertArrayEquals(new int[]{10, 30}, times);
+        assertEquals(1450, departures.departure(entries[0]));
+        assertEquals(MONDAY_ONLY, departures.serviceId(entries[0]));
+    }
+
+    @Test
+    void edgesOfTheCalendar() {
+        // no previous day in the calendar
+        assertDepartures(MONDAY, 0, 600, 1410, 1450, 1470);
+        // only the trips of the last day after midnight
+        assertDepartures(MONDAY.plusDays(3), 0, 30);
+        assertDepartures(MONDAY.plusDays(4), 0);
+        assertDepartures(MONDAY.minusDays(1), 0);
+    }
+
+    private static void assertDepartures(LocalDate date, int minutes, int... expected) {
+        int[] entries = new int[ENTRIES.length * 2];
+        int[] times = new int[ENTRIES.length * 2];
+        int count = departures.nextDepartures(board, days, date, minutes, entries, times);
+
+        assertArrayEquals(expected, Arrays.copyOf(times, count), date + " " + minutes);
+        for (int i = 0; i < count; i++) {
+            int shift = departures.departure(entries[i]) - times[i];
+            assertTrue(shift == 0 || shift == 24 * 60);
+        }
+    }
+
+    /**
+     * @return a container of a single board and a calendar of three days from Monday
+     */
+    private static GtfsData container() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ContainerWriter container = new ContainerWriter(bytes, 1 << 16);
+
+        try (CheckedOutputStream os = container.openSection("departures")) {
+            os.writeInt(1);
+            os.writeShort(5);
+            os.writeShort(1);
+            os.writeInt(0);
+            os.writeInt(ENTRIES.length);
+            for (int i = 0; i < ENTRIES.length; i++) {
+                os.writeShort(ENTRIES[i][0]);
+                os.writeShort(ENTRIES[i][1]);
+                os.writeInt(i);
+            }
+        }
+
+        long[] services = {0b001, 0b010, 0b111};
+        try (CheckedOutputStream os = container.openSection("service_days")) {
+            os.writeInt(MONDAY.getYear() << 16 | MONDAY.getMonthValue() << 8 | MONDAY.getDayOfMonth());
+            os.writeInt(3);
+            os.writeInt(services.length);
+            for (int i = 0; i < services.length; i++) {
+                os.writeShort(i + 1);
+                os.writeLong(services[i]);
+            }
+
+            // the services of every day, Monday: 1 3, Tuesday: 2 3, Wednesday: 3
+            int[][] active = {{1, 3}, {2, 3}, {3}};
+            int offset = 0;
+            for (int[] day : active) {
+                os.writeInt(offset);
+                offset += day.length;
+            }
+            os.writeInt(offset);
+            for (int[] day : active) {
+                for (int serviceId : day) {
+                    os.writeShort(serviceId);
+                }
+            }
+        }
+        container.finish();
+
+        return GtfsData.wrap(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+}
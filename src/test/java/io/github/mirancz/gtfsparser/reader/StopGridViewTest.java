@@ -0,0 +1,164 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import io.github.mirancz.gtfsparser.util.CheckedOutputStream;
+import io.github.mirancz.gtfsparser.util.ContainerWriter;
+import io.github.mirancz.gtfsparser.util.SpatialGrid;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StopGridViewTest {
+
+    private static final double LAT = 49.19;
+    private static final double LON = 16.61;
+    /**
+     * about 10 by 7 km around the center
+     */
+    private static final double SPAN = 0.1;
+
+    private static final double[] RADII = {0, 50, 300, 1000, 5000, 50_000};
+    private static final int[] COUNTS = {1, 3, 10, 50};
+
+    @Test
+    void forEachWithinMatchesLinearScan() throws IOException {
+        Random random = new Random(1);
+        StopGridView grid = grid(random, 800);
+
+        for (double[] position : positions(random)) {
+            for (double radius : RADII) {
+                assertWithin(grid, position, radius);
+            }
+        }
+    }
+
+    @Test
+    void nearestMatchesLinearScan() throws IOException {
+        Random random = new Random(2);
+        StopGridView grid = grid(random, 800);
+
+        for (double[] position : positions(random)) {
+            for (int count : COUNTS) {
+                assertNearest(grid, position, count);
+            }
+        }
+    }
+
+    @Test
+    void smallGrids() throws IOException {
+        Random random = new Random(3);
+
+        for (int size : new int[]{0, 1, 2, 5}) {
+            StopGridView grid = grid(random, size);
+
+            for (double[] position : positions(random)) {
+                assertNearest(grid, position, size + 3);
+                assertWithin(grid, position, 50_000);
+            }
+        }
+    }
+
+    @Test
+    void keepsStopIds() throws IOException {
+        StopGridView grid = grid(new Random(4), 100);
+
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < grid.size(); i++) {
+            ids.add(grid.stopId(i));
+        }
+        assertEquals(IntStream.range(0, 100).map(i -> 1000 + i).boxed().collect(Collectors.toSet()), ids);
+    }
+
+    private static void assertWithin(StopGridView grid, double[] position, double radius) {
+        Set<Integer> found = new HashSet<>();
+        grid.forEachWithin(position[0], position[1], radius, index -> assertTrue(found.add(index), "passed twice"));
+
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < grid.size(); i++) {
+            if (grid.distance(position[0], position[1], i) <= radius) expected.add(i);
+        }
+
+        assertEquals(expected, found, Arrays.toString(position) + " within " + radius);
+    }
+
+    private static void assertNearest(StopGridView grid, double[] position, int count) {
+        int[] indices = new int[count];
+        double[] meters = new double[count];
+        int found = grid.nearest(position[0], position[1], indices, meters);
+
+        double[] expected = IntStream.range(0, grid.size())
+                .mapToDouble(i -> grid.distance(position[0], position[1], i))
+                .sorted()
+                .limit(count)
+                .toArray();
+        String message = Arrays.toString(position) + " nearest " + count;
+
+        assertEquals(expected.length, found, message);
+        assertArrayEquals(expected, Arrays.copyOf(meters, found), message);
+        assertEquals(found, Arrays.stream(indices, 0, found).distinct().count(), message);
+        for (int i = 0; i < found; i++) {
+            assertEquals(meters[i], grid.distance(position[0], position[1], indices[i]), message);
+        }
+    }
+
+    /**
+     * @return a grid of stops in clusters, some of them on the same position, read back from a container
+     */
+    private static StopGridView grid(Random random, int size) throws IOException {
+        int[] lats = new int[size];
+        int[] lons = new int[size];
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && random.nextInt(20) == 0) {
+                lats[i] = lats[i - 1];
+                lons[i] = lons[i - 1];
+            } else {
+                double spread = random.nextBoolean() ? SPAN : SPAN / 20;
+                lats[i] = SpatialGrid.toFixed(LAT + random.nextGaussian() * spread / 4);
+                lons[i] = SpatialGrid.toFixed(LON + random.nextGaussian() * spread / 4);
+            }
+            ids[i] = 1000 + i;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ContainerWriter container = new ContainerWriter(bytes, 1 << 16);
+        try (CheckedOutputStream os = container.openSection("stop_grid")) {
+            new SpatialGrid(lats, lons, 4).write(os, ids);
+        }
+        container.finish();
+
+        return GtfsData.wrap(ByteBuffer.wrap(bytes.toByteArray())).stopGrid();
+    }
+
+    /**
+     * @return positions inside the grid, on its stops and around it up to far outside its bounds
+     */
+    private static List<double[]> positions(Random random) {
+        List<double[]> positions = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            positions.add(new double[]{LAT + (random.nextDouble() - 0.5) * SPAN, LON + (random.nextDouble() - 0.5) * SPAN});
+        }
+        for (double distance : new double[]{SPAN, 2 * SPAN, 10 * SPAN}) {
+            for (int dLat = -1; dLat <= 1; dLat++) {
+                for (int dLon = -1; dLon <= 1; dLon++) {
+                    positions.add(new double[]{LAT + dLat * distance, LON + dLon * distance});
+                }
+            }
+        }
+        positions.add(new double[]{LAT, LON});
+        positions.add(new double[]{0, 0});
+        return positions;
+    }
+
+}
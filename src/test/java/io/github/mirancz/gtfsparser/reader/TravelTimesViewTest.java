@@ -0,0 +1,51 @@
+package io.github.mirancz.gtfsparser.reader;
+
+import org.junit.jupiter.api.Test;
+
+import static io.github.mirancz.gtfsparser.reader.TravelTimesView.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TravelTimesViewTest {
+
+    @Test
+    void keepsShortTimesToTheMinute() {
+        for (int minutes = 0; minutes < 128; minutes++) {
+            assertEquals(minutes, minutes(quantize(minutes)));
+        }
+        assertEquals(127, quantize(127));
+        assertEquals(128, quantize(128));
+        assertEquals(128, minutes(quantize(128)));
+    }
+
+    @Test
+    void roundsLongerTimesUp() {
+        assertEquals(132, minutes(quantize(129)));
+        assertEquals(132, minutes(quantize(132)));
+        assertEquals(136, minutes(quantize(133)));
+
+        for (int minutes = 128; minutes <= MAX_MINUTES; minutes++) {
+            int rounded = minutes(quantize(minutes));
+            assertTrue(rounded >= minutes && rounded < minutes + 4, minutes + " -> " + rounded);
+            assertTrue(quantize(minutes) < LONGER);
+        }
+    }
+
+    @Test
+    void marksTimesPastTheLongestKept() {
+        assertEquals(628, MAX_MINUTES);
+        assertEquals(253, quantize(628));
+        assertEquals(628, minutes(quantize(628)));
+
+        for (int minutes : new int[]{629, 631, 632, 633, 1000, Integer.MAX_VALUE}) {
+            assertEquals(LONGER, quantize(minutes), String.valueOf(minutes));
+        }
+        assertEquals(MAX_MINUTES + 1, minutes(LONGER));
+    }
+
+    @Test
+    void marksUnreachable() {
+        assertEquals(UNREACHABLE, quantize(-1));
+        assertEquals(-1, minutes(UNREACHABLE));
+    }
+
+}
@@ -0,0 +1,113 @@
+package io.github.mirancz.gtfsparser.reader.routing;
+
+import io.github.mirancz.gtfsparser.TestFeed;
+import io.github.mirancz.gtfsparser.reader.GtfsData;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileSearchTest {
+
+    private static final int MAX_TRANSFERS = 4;
+    private static final int FROM = 360;
+    private static final int TO = 660;
+    private static final int PAIRS = 60;
+
+    private static Timetable timetable;
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void load() throws Exception {
+        timetable = Timetable.of(GtfsData.wrap(ByteBuffer.wrap(TestFeed.container())));
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void close() {
+        pool.close();
+    }
+
+    @Test
+    void profileEqualsSearchEveryMinute() {
+        ProfileSearch profile = new ProfileSearch(timetable, MAX_TRANSFERS, pool);
+        Raptor raptor = new Raptor(timetable, MAX_TRANSFERS);
+        Random random = new Random(1);
+        int options = 0;
+
+        for (int pair = 0; pair < PAIRS; ) {
+            int source = random.nextInt(timetable.stopCount());
+            int target = random.nextInt(timetable.stopCount());
+            // walking can depart at any minute, the profile only has it at the departures of the trips
+            if (source == target || walks(source, target)) continue;
+            pair++;
+
+            int day = random.nextInt(timetable.dayCount());
+            List<ProfileSearch.Option> expected = everyMinute(raptor, source, target, day);
+            options += expected.size();
+
+            assertEquals(expected, profile.search(source, target, day, FROM, TO), "from " + source + " to " + target + " on day " + day);
+        }
+
+        assertTrue(options > PAIRS, "options " + options);
+    }
+
+    @Test
+    void sourceIsTheTarget() {
+        assertEquals(List.of(), new ProfileSearch(timetable, MAX_TRANSFERS, pool).search(3, 3, 0, FROM, TO));
+    }
+
+    /**
+     * Searches afresh at every minute of the window. A search finds the journeys departing at the minute or later, so
+     * only the minutes the result changes at afterwards are departures, which then keep the options no other one
+     * departs no earlier, arrives no later and takes no more transfers than.
+     */
+    private static List<ProfileSearch.Option> everyMinute(Raptor raptor, int source, int target, int day) {
+        int width = MAX_TRANSFERS + 1;
+        int[][] arrivals = new int[TO - FROM + 2][width];
+        for (int minute = FROM; minute <= TO + 1; minute++) {
+            raptor.search(source, day, minute);
+            for (int transfers = 0; transfers < width; transfers++) {
+                arrivals[minute - FROM][transfers] = raptor.arrival(target, transfers);
+            }
+        }
+
+        List<ProfileSearch.Option> candidates = new ArrayList<>();
+        for (int minute = FROM; minute <= TO; minute++) {
+            for (int transfers = 0; transfers < width; transfers++) {
+                int arrival = arrivals[minute - FROM][transfers];
+                if (arrival != -1 && arrival != arrivals[minute - FROM + 1][transfers]) {
+                    candidates.add(new ProfileSearch.Option(minute, arrival, transfers));
+                }
+            }
+        }
+
+        List<ProfileSearch.Option> options = new ArrayList<>();
+        for (ProfileSearch.Option option : candidates) {
+            boolean dominated = candidates.stream().anyMatch(other -> !other.equals(option)
+                    && other.departure() >= option.departure()
+                    && other.arrival() <= option.arrival()
+                    && other.transfers() <= option.transfers());
+            if (!dominated) options.add(option);
+        }
+
+        options.sort(Comparator.comparingInt(ProfileSearch.Option::departure).thenComparingInt(ProfileSearch.Option::transfers));
+        return options;
+    }
+
+    private static boolean walks(int from, int to) {
+        for (int j = timetable.transferStart(from); j < timetable.transferEnd(from); j++) {
+            if (timetable.transferStop(j) == to) return true;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,224 @@
+package io.github.mirancz.gtfsparser.reader.routing;
+
+import io.github.mirancz.gtfsparser.TestFeed;
+import io.github.mirancz.gtfsparser.reader.GtfsData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RaptorTest {
+
+    private static final int MAX_TRANSFERS = 30;
+    private static final int QUERIES = 300;
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private static Timetable timetable;
+    /**
+     * {from stop, to stop, departure, arrival, trip, route} of every hop of every trip, by departure and then arrival
+     */
+    private static List<int[]> connections;
+
+    @BeforeAll
+    static void load() throws Exception {
+        timetable = Timetable.of(GtfsData.wrap(ByteBuffer.wrap(TestFeed.container())));
+
+        connections = new ArrayList<>();
+        for (int route = 0; route < timetable.routeCount(); route++) {
+            for (int trip = timetable.routeFirstTrip(route); trip < timetable.routeEndTrip(route); trip++) {
+                for (int i = 0; i + 1 < timetable.routeStopCount(route); i++) {
+                    connections.add(new int[]{
+                            timetable.routeStop(route, i), timetable.routeStop(route, i + 1),
+                            timetable.departure(trip, i), timetable.arrival(trip, i + 1),
+                            trip, route
+                    });
+                }
+            }
+        }
+        connections.sort(Comparator.<int[]>comparingInt(c -> c[2]).thenComparingInt(c -> c[3]));
+    }
+
+    @Test
+    void earliestArrivalsMatchConnectionScan() {
+        Raptor raptor = new Raptor(timetable, MAX_TRANSFERS);
+        Random random = new Random(1);
+        int reached = 0;
+
+        for (int q = 0; q < QUERIES; q++) {
+            int source = random.nextInt(timetable.stopCount());
+            int day = random.nextInt(timetable.dayCount());
+            int time = 360 + random.nextInt(720);
+
+            raptor.search(source, day, time);
+            int[] expected = connectionScan(source, day, time);
+
+            for (int stop = 0; stop < timetable.stopCount(); stop++) {
+                assertEquals(expected[stop], raptor.arrival(stop), "from " + source + " on day " + day + " at " + time + " to " + stop);
+                if (stop != source && expected[stop] != -1) reached++;
+            }
+        }
+
+        // the feed has to be connected enough for the comparison to mean anything
+        assertTrue(reached > QUERIES * timetable.stopCount() / 4, "reached " + reached);
+    }
+
+    @Test
+    void journeysTakeValidLegs() {
+        Raptor raptor = new Raptor(timetable, MAX_TRANSFERS);
+        Random random = new Random(2);
+
+        for (int q = 0; q < QUERIES; q++) {
+            int source = random.nextInt(timetable.stopCount());
+            int day = random.nextInt(timetable.dayCount());
+            int time = 360 + random.nextInt(720);
+            raptor.search(source, day, time);
+
+            for (int stop = 0; stop < timetable.stopCount(); stop++) {
+                if (stop == source || raptor.arrival(stop) == -1) continue;
+
+                Journey journey = raptor.journey(stop);
+                String message = "from " + source + " on day " + day + " at " + time + ": " + journey;
+
+                assertEquals(raptor.arrival(stop), journey.arrival(), message);
+                assertEquals(raptor.transfers(stop), journey.transfers(), message);
+                assertValid(journey, source, stop, time, message);
+            }
+        }
+    }
+
+    @Test
+    void targetSearchFindsTheSameArrival() {
+        Raptor raptor = new Raptor(timetable, MAX_TRANSFERS);
+        Random random = new Random(3);
+
+        for (int q = 0; q < QUERIES; q++) {
+            int source = random.nextInt(timetable.stopCount());
+            int target = random.nextInt(timetable.stopCount());
+            int day = random.nextInt(timetable.dayCount());
+            int time = 360 + random.nextInt(720);
+
+            raptor.search(source, day, time);
+            int arrival = raptor.arrival(target);
+            int transfers = raptor.transfers(target);
+
+            raptor.search(source, target, day, time);
+            assertEquals(arrival, raptor.arrival(target));
+            assertEquals(transfers, raptor.transfers(target));
+        }
+    }
+
+    @Test
+    void fewerTransfersNeverArriveEarlier() {
+        Raptor raptor = new Raptor(timetable, MAX_TRANSFERS);
+        Random random = new Random(4);
+
+        for (int q = 0; q < QUERIES; q++) {
+            int source = random.nextInt(timetable.stopCount());
+            raptor.search(source, random.nextInt(timetable.dayCount()), 360 + random.nextInt(720));
+
+            for (int stop = 0; stop < timetable.stopCount(); stop++) {
+                int transfers = raptor.transfers(stop);
+                if (transfers <= 0) continue;
+
+                int fewer = raptor.arrival(stop, transfers - 1);
+                assertTrue(fewer == -1 || fewer > raptor.arrival(stop));
+                assertEquals(raptor.arrival(stop), raptor.arrival(stop, transfers));
+            }
+        }
+    }
+
+    private static void assertValid(Journey journey, int source, int target, int time, String message) {
+        List<Journey.Leg> legs = journey.legs();
+        assertFalse(legs.isEmpty(), message);
+        assertEquals(source, legs.getFirst().fromStop(), message);
+        assertEquals(target, legs.getLast().toStop(), message);
+
+        int stop = source;
+        Journey.Leg previous = null;
+
+        for (Journey.Leg leg : legs) {
+            assertEquals(stop, leg.fromStop(), message);
+            assertTrue(leg.arrival() >= leg.departure(), message);
+
+            // walking off a trip starts right at its arrival, boarding another one takes the change time
+            int ready;
+            if (previous == null) ready = time;
+            else if (previous.isWalk() || leg.isWalk()) ready = previous.arrival();
+            else ready = previous.arrival() + timetable.changeTime(stop);
+            assertTrue(leg.departure() >= ready, message);
+
+            if (leg.isWalk()) {
+                assertTrue(previous == null || !previous.isWalk(), "chained walks " + message);
+                assertEquals(walkTime(leg.fromStop(), leg.toStop()), leg.arrival() - leg.departure(), message);
+            }
+
+            stop = leg.toStop();
+            previous = leg;
+        }
+    }
+
+    private static int walkTime(int from, int to) {
+        for (int j = timetable.transferStart(from); j < timetable.transferEnd(from); j++) {
+            if (timetable.transferStop(j) == to) return timetable.transferTime(j);
+        }
+        return fail("no walk from " + from + " to " + to);
+    }
+
+    /**
+     * Earliest arrivals found by scanning the connections of the day in order (CSA), with the walking rules of
+     * {@link Raptor}: walks start from the source or from a trip arrival, and changing trips at a stop takes its
+     * change time.
+     *
+     * @return per stop the earliest arrival, -1 if it was not reached
+     */
+    private static int[] connectionScan(int source, int day, int time) {
+        int stopCount = timetable.stopCount();
+        int[] byTrip = new int[stopCount];
+        int[] onFoot = new int[stopCount];
+        Arrays.fill(byTrip, UNREACHED);
+        Arrays.fill(onFoot, UNREACHED);
+        boolean[] boarded = new boolean[timetable.tripCount()];
+
+        onFoot[source] = time;
+        walk(source, time, onFoot);
+
+        for (int[] connection : connections) {
+            int from = connection[0];
+            int to = connection[1];
+            int trip = connection[4];
+            if (!timetable.isActive(connection[5], day)) continue;
+
+            if (!boarded[trip]) {
+                int ready = Math.min(onFoot[from], byTrip[from] == UNREACHED ? UNREACHED : byTrip[from] + timetable.changeTime(from));
+                boarded[trip] = ready <= connection[2];
+            }
+
+            if (boarded[trip] && connection[3] < byTrip[to]) {
+                byTrip[to] = connection[3];
+                walk(to, connection[3], onFoot);
+            }
+        }
+
+        int[] arrivals = new int[stopCount];
+        for (int stop = 0; stop < stopCount; stop++) {
+            int arrival = Math.min(byTrip[stop], onFoot[stop]);
+            arrivals[stop] = arrival == UNREACHED ? -1 : arrival;
+        }
+        return arrivals;
+    }
+
+    private static void walk(int from, int time, int[] onFoot) {
+        for (int j = timetable.transferStart(from); j < timetable.transferEnd(from); j++) {
+            int to = timetable.transferStop(j);
+            onFoot[to] = Math.min(onFoot[to], time + timetable.transferTime(j));
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package io.github.mirancz.gtfsparser.util;
+
+import org.junit.jupiter.api.Test;
+import org.tukaani.xz.XZInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockXZCompressorTest {
+
+    @Test
+    void blocksDecodeAsOneStream() throws IOException {
+        byte[] data = data(100_000);
+
+        for (int blockSize : new int[]{1000, 4096, 100_000, 1 << 20}) {
+            BlockXZCompressor compressor = new BlockXZCompressor(blockSize, 1, 3);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            compressor.compress(new ByteArrayInputStream(data), compressed);
+
+            try (InputStream is = new XZInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+                assertArrayEquals(data, is.readAllBytes(), "block size " + blockSize);
+            }
+            assertEquals((data.length + blockSize - 1) / blockSize, compressor.getBlocks().size());
+
+            long offset = 0;
+            for (BlockXZCompressor.Block block : compressor.getBlocks()) {
+                assertEquals(offset, block.compressedOffset());
+                offset += block.compressedSize();
+            }
+            assertEquals(compressed.size(), offset);
+        }
+    }
+
+    @Test
+    void compressesEmptyInput() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new BlockXZCompressor(1000, 1, 2).compress(InputStream.nullInputStream(), compressed);
+
+        try (InputStream is = new XZInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertEquals(0, is.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new BlockXZCompressor(0, 6, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BlockXZCompressor(1000, 6, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BlockXZCompressor(1000, 12, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BlockXZCompressor(1000, -1, 1));
+    }
+
+    @Test
+    void rethrowsFailingOutput() {
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+
+        BlockXZCompressor compressor = new BlockXZCompressor(1000, 1, 2);
+        IOException e = assertThrows(IOException.class, () -> compressor.compress(new ByteArrayInputStream(data(100_000)), failing));
+        assertEquals("disk full", e.getMessage());
+    }
+
+    @Test
+    void rethrowsFailingInput() {
+        InputStream failing = new ByteArrayInputStream(data(10_000)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos >= 5000) throw new IllegalStateException("broken");
+                return super.read(b, off, Math.min(len, 5000 - pos));
+            }
+        };
+
+        BlockXZCompressor compressor = new BlockXZCompressor(1000, 1, 2);
+        assertThrows(IllegalStateException.class, () -> compressor.compress(failing, OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * @return text like data, compressible but not trivially
+     */
+    private static byte[] data(int length) {
+        Random random = new Random(1);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ('a' + (int) Math.abs(random.nextGaussian() * 4) % 26);
+        }
+        return data;
+    }
+
+}